@@ -0,0 +1,50 @@
+#!/bin/bash
+
+# Compares the platform-thread and virtual-thread execution modes under the
+# same closed-loop HTTP load. Results are appended to bench_output.txt; none
+# are checked in, so run it on the target hardware before relying on either
+# mode.
+#
+# Requires JDK 21 and the dependencies from docker-compose.yml.
+# Tunables: CONCURRENCY (default 400), DURATION seconds (default 60),
+#           MAX_USER_ID (default 10000), PORT (default 8084)
+
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+CONCURRENCY=${CONCURRENCY:-400}
+DURATION=${DURATION:-60}
+MAX_USER_ID=${MAX_USER_ID:-10000}
+PORT=${PORT:-8084}
+BASE_URL="http://localhost:${PORT}"
+
+echo "🔨 Building with the Java 21 profile..."
+mvn -B -q -Pjava21 -DskipTests package test-compile
+JAR=$(ls target/recommendation-service-*.jar | grep -v original | head -1)
+
+run_mode() {
+    local label=$1
+    local virtual=$2
+
+    echo "🚀 Starting service (${label})..."
+    java -jar "$JAR" --server.port="$PORT" --spring.threads.virtual.enabled="$virtual" \
+        > "target/bench-${label}.log" 2>&1 &
+    local pid=$!
+
+    for _ in $(seq 1 60); do
+        if curl -sf "${BASE_URL}/actuator/health" > /dev/null; then
+            break
+        fi
+        sleep 2
+    done
+
+    echo "⏱️  Running ${DURATION}s at concurrency ${CONCURRENCY}..."
+    java -cp target/test-classes com.studysync.recommendation.benchmark.ExecutionModeBenchmark \
+        "$BASE_URL" "$CONCURRENCY" "$DURATION" "$label" "$MAX_USER_ID" | tee -a bench_output.txt
+
+    kill "$pid"
+    wait "$pid" || true
+}
+
+run_mode platform false
+run_mode virtual true
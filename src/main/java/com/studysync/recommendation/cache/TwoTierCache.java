@@ -0,0 +1,133 @@
+package com.studysync.recommendation.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.concurrent.Callable;
+import java.util.function.BiConsumer;
+
+/**
+ * A bounded on-heap cache (L1) in front of a shared Redis cache (L2).
+ *
+ * Reads try L1, then L2, and copy L2 hits into L1. Writes and evictions are
+ * broadcast so other nodes drop their now-outdated L1 copy. L1 entries also expire
+ * on their own, which bounds staleness if a broadcast is missed.
+ */
+public class TwoTierCache implements org.springframework.cache.Cache {
+
+    private final String name;
+    private final Cache<String, Object> local;
+    private final org.springframework.cache.Cache remote;
+    private final BiConsumer<String, String> broadcaster;
+
+    private final Counter remoteHits;
+    private final Counter remoteMisses;
+    private final Counter localInvalidations;
+    private final Counter remoteInvalidations;
+
+    public TwoTierCache(String name, Cache<String, Object> local, org.springframework.cache.Cache remote,
+            BiConsumer<String, String> broadcaster, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.local = local;
+        this.remote = remote;
+        this.broadcaster = broadcaster;
+        this.remoteHits = Counter.builder("cache.l2.gets").tag("cache", name).tag("result", "hit")
+                .register(meterRegistry);
+        this.remoteMisses = Counter.builder("cache.l2.gets").tag("cache", name).tag("result", "miss")
+                .register(meterRegistry);
+        this.localInvalidations = Counter.builder("cache.invalidations").tag("cache", name).tag("source", "local")
+                .register(meterRegistry);
+        this.remoteInvalidations = Counter.builder("cache.invalidations").tag("cache", name).tag("source", "remote")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return local;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        Object value = local.getIfPresent(localKey(key));
+        if (value != null) {
+            return new SimpleValueWrapper(value);
+        }
+
+        ValueWrapper wrapper = remote.get(key);
+        if (wrapper != null && wrapper.get() != null) {
+            remoteHits.increment();
+            local.put(localKey(key), wrapper.get());
+        } else {
+            remoteMisses.increment();
+        }
+        return wrapper;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        return (T) local.get(localKey(key), k -> remote.get(key, valueLoader));
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        remote.put(key, value);
+        if (value != null) {
+            local.put(localKey(key), value);
+        } else {
+            local.invalidate(localKey(key));
+        }
+        broadcaster.accept(name, localKey(key));
+    }
+
+    @Override
+    public void evict(Object key) {
+        remote.evict(key);
+        local.invalidate(localKey(key));
+        localInvalidations.increment();
+        broadcaster.accept(name, localKey(key));
+    }
+
+    @Override
+    public void clear() {
+        remote.clear();
+        local.invalidateAll();
+        localInvalidations.increment();
+        broadcaster.accept(name, null);
+    }
+
+    /**
+     * Apply an invalidation received from another node; a null key clears L1
+     */
+    public void evictLocal(String key) {
+        if (key == null) {
+            local.invalidateAll();
+        } else {
+            local.invalidate(key);
+        }
+        remoteInvalidations.increment();
+    }
+
+    // Keys travel between nodes as strings, so L1 uses the string form too
+    private static String localKey(Object key) {
+        return String.valueOf(key);
+    }
+}
@@ -1,22 +1,35 @@
 package com.studysync.recommendation.config;
 
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import com.studysync.recommendation.dto.PostLifecycleEvent;
+import com.studysync.recommendation.dto.UserInteractionEvent;
+import com.studysync.recommendation.kafka.consumer.IdempotencyService;
+import com.studysync.recommendation.kafka.serialization.EventFormat;
+import com.studysync.recommendation.kafka.serialization.ProtobufEventSerializer;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.Serializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.*;
 import org.springframework.kafka.listener.ContainerProperties;
 import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
 import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.serializer.DelegatingByTypeSerializer;
 import org.springframework.kafka.support.serializer.JsonSerializer;
 import org.springframework.util.backoff.FixedBackOff;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -36,16 +49,29 @@ public class KafkaConsumerConfig {
     @Value("${app.kafka.topics.dlq:recommendation-dlq}")
     private String dlqTopic;
 
+    @Value("${spring.kafka.listener.concurrency:3}")
+    private int concurrency;
+
+    @Value("${app.kafka.producer.event-format:json}")
+    private String eventFormat;
+
+    private final Environment environment;
+
+    public KafkaConsumerConfig(Environment environment) {
+        this.environment = environment;
+    }
+
     /**
-     * Consumer factory with string deserialization
+     * Consumer factory with raw byte values; listeners decode them according to
+     * the event-format header (JSON or protobuf)
      */
     @Bean
-    public ConsumerFactory<String, String> consumerFactory() {
+    public ConsumerFactory<String, byte[]> consumerFactory() {
         Map<String, Object> props = new HashMap<>();
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
         props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
         props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
         props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
         props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 100);
@@ -53,18 +79,33 @@ public class KafkaConsumerConfig {
     }
 
     /**
-     * Producer factory for DLQ publishing
+     * Producer factory for events and DLQ publishing.
+     * - Interaction and lifecycle events use app.kafka.producer.event-format
+     * - Raw byte[] values (DLQ republishing) are passed through unchanged
+     * - Everything else is JSON
      */
     @Bean
     public ProducerFactory<String, Object> producerFactory() {
         Map<String, Object> props = new HashMap<>();
         props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
         props.put(ProducerConfig.ACKS_CONFIG, "all");
         props.put(ProducerConfig.RETRIES_CONFIG, 3);
         props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
-        return new DefaultKafkaProducerFactory<>(props);
+
+        Serializer<Object> jsonSerializer = new JsonSerializer<>();
+        Serializer<Object> eventSerializer = EventFormat.fromName(eventFormat) == EventFormat.PROTOBUF
+                ? new ProtobufEventSerializer()
+                : jsonSerializer;
+
+        // Checked in order, first assignable type wins
+        Map<Class<?>, Serializer<?>> valueSerializers = new LinkedHashMap<>();
+        valueSerializers.put(UserInteractionEvent.class, eventSerializer);
+        valueSerializers.put(PostLifecycleEvent.class, eventSerializer);
+        valueSerializers.put(byte[].class, new ByteArraySerializer());
+        valueSerializers.put(Object.class, jsonSerializer);
+
+        return new DefaultKafkaProducerFactory<>(props, new StringSerializer(),
+                new DelegatingByTypeSerializer(valueSerializers, true));
     }
 
     /**
@@ -108,17 +149,58 @@ public class KafkaConsumerConfig {
      * handling
      */
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, String> kafkaListenerContainerFactory(
-            ConsumerFactory<String, String> consumerFactory,
-            DefaultErrorHandler errorHandler) {
+    public ConcurrentKafkaListenerContainerFactory<String, byte[]> kafkaListenerContainerFactory(
+            ConsumerFactory<String, byte[]> consumerFactory,
+            DefaultErrorHandler errorHandler,
+            IdempotencyService idempotencyService) {
+
+        ConcurrentKafkaListenerContainerFactory<String, byte[]> factory = new ConcurrentKafkaListenerContainerFactory<>();
+
+        factory.setConsumerFactory(consumerFactory);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.setConcurrency(concurrency);
+        factory.setCommonErrorHandler(errorHandler);
+        // Deduplicate through Redis while newly assigned partitions are redelivered
+        factory.getContainerProperties().setConsumerRebalanceListener(idempotencyService);
+        applyThreadingMode(factory, "kafka-listener-");
+
+        return factory;
+    }
+
+    /**
+     * Batch variant of the listener container factory.
+     * - Hands the whole poll (up to max.poll.records) to the listener
+     * - Acknowledgment is per batch; a BatchListenerFailedException commits the
+     *   records before the failed one and routes the failed record to the DLQ
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, byte[]> batchKafkaListenerContainerFactory(
+            ConsumerFactory<String, byte[]> consumerFactory,
+            DefaultErrorHandler errorHandler,
+            IdempotencyService idempotencyService) {
 
-        ConcurrentKafkaListenerContainerFactory<String, String> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        ConcurrentKafkaListenerContainerFactory<String, byte[]> factory = new ConcurrentKafkaListenerContainerFactory<>();
 
         factory.setConsumerFactory(consumerFactory);
+        factory.setBatchListener(true);
         factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
-        factory.setConcurrency(3);
+        factory.setConcurrency(concurrency);
         factory.setCommonErrorHandler(errorHandler);
+        // Deduplicate through Redis while newly assigned partitions are redelivered
+        factory.getContainerProperties().setConsumerRebalanceListener(idempotencyService);
+        applyThreadingMode(factory, "kafka-batch-listener-");
 
         return factory;
     }
+
+    /**
+     * Run listener containers on virtual threads when virtual-thread mode is on
+     */
+    private void applyThreadingMode(ConcurrentKafkaListenerContainerFactory<String, byte[]> factory, String prefix) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(prefix);
+            executor.setVirtualThreads(true);
+            factory.getContainerProperties().setListenerTaskExecutor(executor);
+        }
+    }
 }
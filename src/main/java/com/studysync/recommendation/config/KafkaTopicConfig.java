@@ -21,6 +21,9 @@ public class KafkaTopicConfig {
     @Value("${app.kafka.topics.dlq:recommendation-dlq}")
     private String dlqTopic;
 
+    @Value("${app.kafka.topics.post-score-changes:post-score-changes}")
+    private String postScoreChangesTopic;
+
     @Bean
     public NewTopic userInteractionTopic() {
         return TopicBuilder.name(userInteractionTopic)
@@ -48,6 +51,15 @@ public class KafkaTopicConfig {
                 .build();
     }
 
+    @Bean
+    public NewTopic postScoreChangesTopic() {
+        return TopicBuilder.name(postScoreChangesTopic)
+                .partitions(3)
+                .replicas(1)
+                .compact() // latest state per post, replayed by new ranking replicas
+                .build();
+    }
+
     @Bean
     public NewTopic dlqTopic() {
         return TopicBuilder.name(dlqTopic)
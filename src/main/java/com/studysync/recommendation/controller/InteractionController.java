@@ -3,6 +3,7 @@ package com.studysync.recommendation.controller;
 import com.studysync.recommendation.dto.InteractionRequest;
 import com.studysync.recommendation.model.UserInteraction;
 import com.studysync.recommendation.service.InteractionService;
+import com.studysync.recommendation.service.RecommendationRegenerationScheduler;
 import com.studysync.recommendation.service.RecommendationService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -22,6 +23,7 @@ public class InteractionController {
 
     private final InteractionService interactionService;
     private final RecommendationService recommendationService;
+    private final RecommendationRegenerationScheduler regenerationScheduler;
 
     @PostMapping
     @Operation(summary = "Record a user interaction", description = "Records a user interaction with a post (like, comment, share, view, etc.)")
@@ -33,8 +35,8 @@ public class InteractionController {
                 request.getCategory(),
                 request.getMetadata());
 
-        // Trigger recommendation generation asynchronously
-        recommendationService.generateAndPublishRecommendations(request.getUserId());
+        // Regenerate once the user's burst of interactions settles
+        regenerationScheduler.request(request.getUserId());
 
         return ResponseEntity.status(HttpStatus.CREATED).body(interaction);
     }
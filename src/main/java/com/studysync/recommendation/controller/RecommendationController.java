@@ -1,15 +1,21 @@
 package com.studysync.recommendation.controller;
 
+import com.studysync.recommendation.dto.BatchRecommendationRequest;
+import com.studysync.recommendation.dto.HydratedRecommendation;
 import com.studysync.recommendation.dto.PostRecommendationEvent;
+import com.studysync.recommendation.dto.RecommendationPage;
 import com.studysync.recommendation.model.PostScore;
 import com.studysync.recommendation.service.RecommendationService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/v1/recommendations")
@@ -19,6 +25,12 @@ public class RecommendationController {
 
     private final RecommendationService recommendationService;
 
+    @Value("${app.recommendation.paging.default-page-size:20}")
+    private int defaultPageSize;
+
+    @Value("${app.recommendation.paging.max-page-size:100}")
+    private int maxPageSize;
+
     @GetMapping("/user/{userId}")
     @Operation(summary = "Get personalized recommendations", description = "Returns a list of recommended posts for the specified user")
     public ResponseEntity<List<PostRecommendationEvent.RecommendedPost>> getRecommendations(
@@ -28,6 +40,35 @@ public class RecommendationController {
         return ResponseEntity.ok(recommendations);
     }
 
+    @GetMapping("/user/{userId}/hydrated")
+    @Operation(summary = "Get personalized recommendations with post details", description = "Returns recommended posts with title, author and engagement counts, so clients need no second lookup")
+    public ResponseEntity<List<HydratedRecommendation>> getHydratedRecommendations(@PathVariable Long userId) {
+        return ResponseEntity.ok(recommendationService.getHydratedRecommendationsForUser(userId));
+    }
+
+    @GetMapping("/user/{userId}/page")
+    @Operation(summary = "Get a page of recommendations", description = "Returns one page of recommended posts and an opaque cursor for the next page (null when there are no more)")
+    public ResponseEntity<RecommendationPage> getRecommendationPage(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        int pageSize = size != null ? Math.max(1, Math.min(size, maxPageSize)) : defaultPageSize;
+        try {
+            return ResponseEntity.ok(recommendationService.getRecommendationPage(userId, cursor, pageSize));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PostMapping("/batch")
+    @Operation(summary = "Get recommendations for many users", description = "Returns recommended posts for each of the given users, keyed by user ID")
+    public ResponseEntity<Map<Long, List<PostRecommendationEvent.RecommendedPost>>> getBatchRecommendations(
+            @Valid @RequestBody BatchRecommendationRequest request) {
+        Map<Long, List<PostRecommendationEvent.RecommendedPost>> recommendations = recommendationService
+                .getRecommendationsForUsers(request.getUserIds());
+        return ResponseEntity.ok(recommendations);
+    }
+
     @PostMapping("/user/{userId}/generate")
     @Operation(summary = "Trigger recommendation generation", description = "Asynchronously generates and publishes recommendations for a user")
     public ResponseEntity<String> generateRecommendations(@PathVariable Long userId) {
@@ -36,10 +77,11 @@ public class RecommendationController {
     }
 
     @GetMapping("/trending")
-    @Operation(summary = "Get trending posts", description = "Returns a list of currently trending posts based on recent engagement")
+    @Operation(summary = "Get trending posts", description = "Returns a list of currently trending posts based on recent engagement, optionally within one category")
     public ResponseEntity<List<PostScore>> getTrendingPosts(
+            @RequestParam(required = false) String category,
             @RequestParam(defaultValue = "10") int limit) {
-        List<PostScore> trendingPosts = recommendationService.getTrendingPosts(limit);
+        List<PostScore> trendingPosts = recommendationService.getTrendingPosts(category, limit);
         return ResponseEntity.ok(trendingPosts);
     }
 }
@@ -0,0 +1,22 @@
+package com.studysync.recommendation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Cache entry for a user's recommendations; generatedAt (epoch millis) tells
+ * fresh entries from ones that are served stale while being refreshed
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CachedRecommendations {
+
+    private List<PostRecommendationEvent.RecommendedPost> recommendations;
+    private long generatedAt;
+}
@@ -0,0 +1,33 @@
+package com.studysync.recommendation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * A recommended post with its details from the Laravel backend. Detail fields
+ * are null when the backend could not be reached.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HydratedRecommendation {
+
+    private Long postId;
+    private Double score;
+    private String reason;
+    private List<String> categories;
+
+    private String title;
+    private Long authorId;
+    private String authorName;
+    private String createdAt;
+    private List<String> tags;
+    private Integer likeCount;
+    private Integer commentCount;
+    private Integer viewCount;
+}
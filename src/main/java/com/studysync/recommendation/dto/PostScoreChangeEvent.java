@@ -0,0 +1,28 @@
+package com.studysync.recommendation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Latest ranking state of a post, published whenever its score, category or
+ * author changes (keyed by post ID on a compacted topic)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PostScoreChangeEvent {
+
+    private Long postId;
+    private Long authorId;
+    private String category;
+    private Double totalScore;
+    // Time-decay-encoded ranking score (RankScoreCodec)
+    private Double rankScore;
+    // The post was deleted or unpublished
+    private boolean removed;
+    // Row version of the post score; older changes never overwrite newer ones
+    private long version;
+}
@@ -0,0 +1,18 @@
+package com.studysync.recommendation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecommendationPage {
+
+    private List<PostRecommendationEvent.RecommendedPost> recommendations;
+    private String nextCursor; // Opaque; null when there are no more pages
+}
@@ -1,8 +1,13 @@
 package com.studysync.recommendation.grpc.client;
 
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.studysync.recommendation.grpc.*;
 import io.grpc.ManagedChannel;
 import io.grpc.ManagedChannelBuilder;
+import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
@@ -10,16 +15,41 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * gRPC Client for fetching post and user details from Laravel backend.
- * 
+ *
  * This client is used to hydrate recommendation data with full post/user
  * information when serving recommendations to users.
+ *
+ * - Non-blocking: every call is made on a future stub; the blocking methods
+ *   wait on the async ones
+ * - Round-robin over one channel per configured backend address
+ * - Hedging: if a call has not answered after the p95 of recent latencies for
+ *   that method, a second attempt goes to the next backend and the first
+ *   answer wins
+ * - Bulkhead: a fixed number of in-flight attempts; calls beyond it fail fast
+ *   with RESOURCE_EXHAUSTED instead of queueing
+ * - Large batch requests are split into chunks that run in parallel
  */
 @Component
 @Slf4j
@@ -31,36 +61,92 @@ public class GrpcPostClient {
     @Value("${grpc.client.laravel.port:6001}")
     private int laravelGrpcPort;
 
+    // Comma-separated host:port list; defaults to host:port above
+    @Value("${grpc.client.laravel.addresses:}")
+    private String laravelGrpcAddresses;
+
     @Value("${grpc.client.laravel.timeout-seconds:5}")
     private int timeoutSeconds;
 
-    private ManagedChannel channel;
-    private PostDetailServiceGrpc.PostDetailServiceBlockingStub blockingStub;
+    @Value("${grpc.client.laravel.max-concurrent-calls:64}")
+    private int maxConcurrentCalls;
+
+    @Value("${grpc.client.laravel.batch-chunk-size:100}")
+    private int batchChunkSize;
+
+    @Value("${grpc.client.laravel.hedging.enabled:true}")
+    private boolean hedgingEnabled;
+
+    @Value("${grpc.client.laravel.hedging.percentile:0.95}")
+    private double hedgingPercentile;
+
+    @Value("${grpc.client.laravel.hedging.min-delay-ms:20}")
+    private long minHedgeDelayMs;
+
+    @Value("${grpc.client.laravel.hedging.max-delay-ms:1000}")
+    private long maxHedgeDelayMs;
+
+    private List<ManagedChannel> channels;
+    private List<PostDetailServiceGrpc.PostDetailServiceFutureStub> stubs;
+    private final AtomicInteger nextChannel = new AtomicInteger();
+    private final Map<String, LatencyTracker> latencies = new ConcurrentHashMap<>();
+    private ScheduledExecutorService hedgeScheduler;
+
+    // Bounds in-flight attempts independently of how many (virtual) threads call in
+    private Semaphore callPermits;
 
     @PostConstruct
     public void init() {
-        log.info("Initializing gRPC client for Laravel backend at {}:{}", laravelGrpcHost, laravelGrpcPort);
+        List<String> targets = laravelGrpcAddresses == null || laravelGrpcAddresses.isBlank()
+                ? List.of(laravelGrpcHost + ":" + laravelGrpcPort)
+                : Arrays.stream(laravelGrpcAddresses.split(","))
+                        .map(String::trim)
+                        .filter(address -> !address.isEmpty())
+                        .collect(Collectors.toList());
+        log.info("Initializing gRPC client for Laravel backend at {}", targets);
 
-        channel = ManagedChannelBuilder.forAddress(laravelGrpcHost, laravelGrpcPort)
-                .usePlaintext() // Use TLS in production
-                .keepAliveTime(30, TimeUnit.SECONDS)
-                .keepAliveTimeout(10, TimeUnit.SECONDS)
-                .build();
+        start(targets.stream()
+                .map(target -> ManagedChannelBuilder.forTarget(target)
+                        .usePlaintext() // Use TLS in production
+                        .keepAliveTime(30, TimeUnit.SECONDS)
+                        .keepAliveTimeout(10, TimeUnit.SECONDS)
+                        .build())
+                .collect(Collectors.toList()));
+    }
 
-        blockingStub = PostDetailServiceGrpc.newBlockingStub(channel);
+    /**
+     * Start calling the given channels, one per backend
+     */
+    void start(List<ManagedChannel> backendChannels) {
+        channels = List.copyOf(backendChannels);
+        stubs = channels.stream()
+                .map(PostDetailServiceGrpc::newFutureStub)
+                .collect(Collectors.toList());
+        callPermits = new Semaphore(maxConcurrentCalls);
+        hedgeScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "grpc-hedge");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     @PreDestroy
     public void shutdown() {
-        if (channel != null && !channel.isShutdown()) {
-            try {
-                channel.shutdown().awaitTermination(5, TimeUnit.SECONDS);
-                log.info("gRPC channel shutdown completed");
-            } catch (InterruptedException e) {
-                log.warn("gRPC channel shutdown interrupted", e);
-                Thread.currentThread().interrupt();
+        if (hedgeScheduler != null) {
+            hedgeScheduler.shutdownNow();
+        }
+        for (ManagedChannel channel : channels) {
+            if (!channel.isShutdown()) {
+                try {
+                    channel.shutdown().awaitTermination(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    log.warn("gRPC channel shutdown interrupted", e);
+                    Thread.currentThread().interrupt();
+                    return;
+                }
             }
         }
+        log.info("gRPC channel shutdown completed");
     }
 
     /**
@@ -68,94 +154,113 @@ public class GrpcPostClient {
      */
     public Optional<PostResponse> getPostInfo(Long postId) {
         try {
-            PostRequest request = PostRequest.newBuilder()
-                    .setPostId(postId)
-                    .build();
-
-            PostResponse response = blockingStub
-                    .withDeadlineAfter(timeoutSeconds, TimeUnit.SECONDS)
-                    .getPostInfo(request);
-
-            if (response.getId() == 0) {
-                log.debug("Post not found: {}", postId);
-                return Optional.empty();
-            }
-
-            log.debug("Retrieved post info: id={}, title={}", response.getId(), response.getTitle());
-            return Optional.of(response);
-
-        } catch (StatusRuntimeException e) {
-            log.error("gRPC call failed for post {}: {} - {}",
-                    postId, e.getStatus().getCode(), e.getMessage());
-            return Optional.empty();
-        } catch (Exception e) {
-            log.error("Unexpected error fetching post {}", postId, e);
+            Optional<PostResponse> response = getPostInfoAsync(postId).join();
+            response.ifPresentOrElse(
+                    post -> log.debug("Retrieved post info: id={}, title={}", post.getId(), post.getTitle()),
+                    () -> log.debug("Post not found: {}", postId));
+            return response;
+        } catch (CompletionException e) {
+            log.error("gRPC call failed for post {}: {}", postId, describe(e.getCause()));
             return Optional.empty();
         }
     }
 
+    /**
+     * Fetch details for a single post; empty if the post does not exist
+     */
+    public CompletableFuture<Optional<PostResponse>> getPostInfoAsync(Long postId) {
+        PostRequest request = PostRequest.newBuilder()
+                .setPostId(postId)
+                .build();
+
+        return call("GetPostInfo", stub -> stub.getPostInfo(request))
+                .thenApply(response -> response.getId() == 0 ? Optional.empty() : Optional.of(response));
+    }
+
     /**
      * Fetch details for multiple posts in batch from Laravel backend
      */
     public List<PostResponse> getBatchPostInfo(List<Long> postIds) {
-        if (postIds == null || postIds.isEmpty()) {
-            return Collections.emptyList();
-        }
-
         try {
-            BatchPostRequest request = BatchPostRequest.newBuilder()
-                    .addAllPostIds(postIds)
-                    .build();
-
-            BatchPostResponse response = blockingStub
-                    .withDeadlineAfter(timeoutSeconds * 2, TimeUnit.SECONDS) // Double timeout for batch
-                    .getBatchPostInfo(request);
-
-            log.debug("Retrieved {} posts in batch (requested: {})",
-                    response.getPostsCount(), postIds.size());
-            return response.getPostsList();
-
+            return fetchBatchPostInfo(postIds);
         } catch (StatusRuntimeException e) {
             log.error("gRPC batch call failed: {} - {}",
                     e.getStatus().getCode(), e.getMessage());
             return Collections.emptyList();
-        } catch (Exception e) {
-            log.error("Unexpected error in batch post fetch", e);
-            return Collections.emptyList();
         }
     }
 
     /**
-     * Fetch user profile for personalization from Laravel backend
+     * Same as {@link #getBatchPostInfo(List)}, but failures are thrown rather
+     * than returned as an empty list, so callers can tell "not found" from
+     * "not reachable"
+     *
+     * @throws StatusRuntimeException if the call fails
      */
-    public Optional<UserProfileResponse> getUserProfile(Long userId) {
+    public List<PostResponse> fetchBatchPostInfo(List<Long> postIds) {
         try {
-            UserProfileRequest request = UserProfileRequest.newBuilder()
-                    .setUserId(userId)
-                    .build();
+            return getBatchPostInfoAsync(postIds).join();
+        } catch (CompletionException e) {
+            throw asStatusException(e.getCause());
+        }
+    }
 
-            UserProfileResponse response = blockingStub
-                    .withDeadlineAfter(timeoutSeconds, TimeUnit.SECONDS)
-                    .getUserProfile(request);
+    /**
+     * Fetch details for multiple posts. Requests larger than the chunk size are
+     * split into chunks that run in parallel; the future fails if any chunk
+     * fails.
+     */
+    public CompletableFuture<List<PostResponse>> getBatchPostInfoAsync(List<Long> postIds) {
+        if (postIds == null || postIds.isEmpty()) {
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
 
-            if (response.getId() == 0) {
-                log.debug("User not found: {}", userId);
-                return Optional.empty();
-            }
+        List<CompletableFuture<BatchPostResponse>> chunks = new ArrayList<>();
+        for (int from = 0; from < postIds.size(); from += batchChunkSize) {
+            BatchPostRequest request = BatchPostRequest.newBuilder()
+                    .addAllPostIds(postIds.subList(from, Math.min(from + batchChunkSize, postIds.size())))
+                    .build();
+            chunks.add(call("GetBatchPostInfo", stub -> stub.getBatchPostInfo(request)));
+        }
 
-            log.debug("Retrieved user profile: id={}, name={}", response.getId(), response.getName());
-            return Optional.of(response);
+        return CompletableFuture.allOf(chunks.toArray(CompletableFuture[]::new))
+                .thenApply(done -> {
+                    List<PostResponse> posts = new ArrayList<>(postIds.size());
+                    chunks.forEach(chunk -> posts.addAll(chunk.join().getPostsList()));
+                    log.debug("Retrieved {} posts in {} chunks (requested: {})",
+                            posts.size(), chunks.size(), postIds.size());
+                    return posts;
+                });
+    }
 
-        } catch (StatusRuntimeException e) {
-            log.error("gRPC call failed for user {}: {} - {}",
-                    userId, e.getStatus().getCode(), e.getMessage());
-            return Optional.empty();
-        } catch (Exception e) {
-            log.error("Unexpected error fetching user {}", userId, e);
+    /**
+     * Fetch user profile for personalization from Laravel backend
+     */
+    public Optional<UserProfileResponse> getUserProfile(Long userId) {
+        try {
+            Optional<UserProfileResponse> response = getUserProfileAsync(userId).join();
+            response.ifPresentOrElse(
+                    user -> log.debug("Retrieved user profile: id={}, name={}", user.getId(), user.getName()),
+                    () -> log.debug("User not found: {}", userId));
+            return response;
+        } catch (CompletionException e) {
+            log.error("gRPC call failed for user {}: {}", userId, describe(e.getCause()));
             return Optional.empty();
         }
     }
 
+    /**
+     * Fetch a user profile; empty if the user does not exist
+     */
+    public CompletableFuture<Optional<UserProfileResponse>> getUserProfileAsync(Long userId) {
+        UserProfileRequest request = UserProfileRequest.newBuilder()
+                .setUserId(userId)
+                .build();
+
+        return call("GetUserProfile", stub -> stub.getUserProfile(request))
+                .thenApply(response -> response.getId() == 0 ? Optional.empty() : Optional.of(response));
+    }
+
     /**
      * Check if the gRPC connection is healthy
      */
@@ -166,16 +271,149 @@ public class GrpcPostClient {
                     .setPostId(-1L)
                     .build();
 
-            blockingStub
+            stubs.get(0)
                     .withDeadlineAfter(2, TimeUnit.SECONDS)
-                    .getPostInfo(request);
+                    .getPostInfo(request)
+                    .get();
 
             return true;
-        } catch (StatusRuntimeException e) {
+        } catch (ExecutionException e) {
             // UNAVAILABLE means connection issue, other errors mean service is reachable
-            return !e.getStatus().getCode().name().equals("UNAVAILABLE");
+            return Status.fromThrowable(e.getCause()).getCode() != Status.Code.UNAVAILABLE;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
         } catch (Exception e) {
             return false;
         }
     }
+
+    /**
+     * Make one call, hedged if it runs past the method's usual latency. Each
+     * attempt holds a call permit; the first successful answer completes the
+     * future and cancels the other attempt.
+     */
+    private <T> CompletableFuture<T> call(String method,
+            Function<PostDetailServiceGrpc.PostDetailServiceFutureStub, ListenableFuture<T>> rpc) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        if (!callPermits.tryAcquire()) {
+            result.completeExceptionally(Status.RESOURCE_EXHAUSTED
+                    .withDescription("Too many concurrent gRPC calls")
+                    .asRuntimeException());
+            return result;
+        }
+
+        LatencyTracker tracker = latencies.computeIfAbsent(method, name -> new LatencyTracker(hedgingPercentile));
+        int channel = Math.floorMod(nextChannel.getAndIncrement(), stubs.size());
+        AtomicInteger outstanding = new AtomicInteger(1);
+        List<ListenableFuture<T>> attempts = new CopyOnWriteArrayList<>();
+
+        attempt(rpc, channel, result, attempts, outstanding, tracker);
+
+        if (hedgingEnabled) {
+            long delay = tracker.hedgeDelayMillis(minHedgeDelayMs, maxHedgeDelayMs);
+            ScheduledFuture<?> hedge = hedgeScheduler.schedule(() -> {
+                // Skip the hedge rather than wait when the bulkhead is full
+                if (result.isDone() || !callPermits.tryAcquire()) {
+                    return;
+                }
+                outstanding.incrementAndGet();
+                log.debug("Hedging {} after {} ms", method, delay);
+                attempt(rpc, channel + 1, result, attempts, outstanding, tracker);
+            }, delay, TimeUnit.MILLISECONDS);
+            result.whenComplete((value, error) -> hedge.cancel(false));
+        }
+
+        result.whenComplete((value, error) -> attempts.forEach(attempt -> attempt.cancel(true)));
+        return result;
+    }
+
+    private <T> void attempt(Function<PostDetailServiceGrpc.PostDetailServiceFutureStub, ListenableFuture<T>> rpc,
+            int channel, CompletableFuture<T> result, List<ListenableFuture<T>> attempts,
+            AtomicInteger outstanding, LatencyTracker tracker) {
+        long started = System.nanoTime();
+        ListenableFuture<T> future;
+        try {
+            future = rpc.apply(stubs.get(Math.floorMod(channel, stubs.size()))
+                    .withDeadlineAfter(timeoutSeconds, TimeUnit.SECONDS));
+        } catch (RuntimeException e) {
+            callPermits.release();
+            if (outstanding.decrementAndGet() == 0) {
+                result.completeExceptionally(e);
+            }
+            return;
+        }
+        attempts.add(future);
+
+        Futures.addCallback(future, new FutureCallback<T>() {
+            @Override
+            public void onSuccess(T value) {
+                callPermits.release();
+                tracker.record(System.nanoTime() - started);
+                result.complete(value);
+            }
+
+            @Override
+            public void onFailure(Throwable error) {
+                callPermits.release();
+                if (outstanding.decrementAndGet() == 0) {
+                    result.completeExceptionally(error);
+                }
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    private static StatusRuntimeException asStatusException(Throwable error) {
+        return error instanceof StatusRuntimeException statusException
+                ? statusException
+                : Status.fromThrowable(error).asRuntimeException();
+    }
+
+    private static String describe(Throwable error) {
+        Status status = Status.fromThrowable(error);
+        return status.getCode() + " - " + (status.getDescription() != null ? status.getDescription() : error);
+    }
+
+    /**
+     * Recent successful attempt latencies of one method
+     */
+    static final class LatencyTracker {
+
+        private static final int SAMPLES = 256;
+        private static final int MIN_SAMPLES = 20;
+        private static final int RECOMPUTE_EVERY = 16;
+
+        private final double percentile;
+        private final long[] samples = new long[SAMPLES];
+        private int count;
+        private int next;
+        private volatile long percentileNanos = -1;
+
+        LatencyTracker(double percentile) {
+            this.percentile = percentile;
+        }
+
+        synchronized void record(long nanos) {
+            samples[next] = nanos;
+            next = (next + 1) % SAMPLES;
+            count = Math.min(count + 1, SAMPLES);
+            if (count >= MIN_SAMPLES && next % RECOMPUTE_EVERY == 0) {
+                long[] sorted = Arrays.copyOf(samples, count);
+                Arrays.sort(sorted);
+                percentileNanos = sorted[Math.min(count - 1, (int) Math.ceil(percentile * count) - 1)];
+            }
+        }
+
+        /**
+         * The latency percentile clamped to [min, max]; max until enough
+         * samples have been seen
+         */
+        long hedgeDelayMillis(long minMillis, long maxMillis) {
+            long nanos = percentileNanos;
+            if (nanos < 0) {
+                return maxMillis;
+            }
+            return Math.max(minMillis, Math.min(maxMillis, TimeUnit.NANOSECONDS.toMillis(nanos)));
+        }
+    }
 }
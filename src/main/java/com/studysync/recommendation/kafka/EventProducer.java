@@ -1,6 +1,7 @@
 package com.studysync.recommendation.kafka;
 
 import com.studysync.recommendation.dto.PostRecommendationEvent;
+import com.studysync.recommendation.dto.PostScoreChangeEvent;
 import com.studysync.recommendation.dto.UserInteractionEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -9,6 +10,7 @@ import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 @Component
@@ -24,6 +26,9 @@ public class EventProducer {
     @Value("${app.kafka.topics.post-recommendation}")
     private String postRecommendationTopic;
 
+    @Value("${app.kafka.topics.post-score-changes:post-score-changes}")
+    private String postScoreChangesTopic;
+
     public void sendInteractionEvent(UserInteractionEvent event) {
         try {
             String key = event.getUserId() + "-" + event.getPostId();
@@ -62,4 +67,31 @@ public class EventProducer {
             log.error("Error sending recommendation event to Kafka", e);
         }
     }
+
+    /**
+     * Publish score changes. A removal is followed by a tombstone for the
+     * post, so compaction eventually drops the key instead of keeping the
+     * removed state forever; replicas act on the removal event itself.
+     */
+    public void sendScoreChanges(List<PostScoreChangeEvent> changes) {
+        for (PostScoreChangeEvent change : changes) {
+            try {
+                String key = String.valueOf(change.getPostId());
+                kafkaTemplate.send(postScoreChangesTopic, key, change).whenComplete((result, ex) -> {
+                    if (ex != null) {
+                        log.error("Failed to send score change for post: {}", key, ex);
+                    }
+                });
+                if (change.isRemoved()) {
+                    kafkaTemplate.send(postScoreChangesTopic, key, null).whenComplete((result, ex) -> {
+                        if (ex != null) {
+                            log.error("Failed to send score change tombstone for post: {}", key, ex);
+                        }
+                    });
+                }
+            } catch (Exception e) {
+                log.error("Error sending score change to Kafka", e);
+            }
+        }
+    }
 }
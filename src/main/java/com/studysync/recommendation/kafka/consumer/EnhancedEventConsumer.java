@@ -3,15 +3,28 @@ package com.studysync.recommendation.kafka.consumer;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.studysync.recommendation.dto.PostLifecycleEvent;
 import com.studysync.recommendation.dto.UserInteractionEvent;
+import com.studysync.recommendation.kafka.serialization.EventDeserializer;
+import com.studysync.recommendation.kafka.serialization.EventFormat;
 import com.studysync.recommendation.service.InteractionService;
+import com.studysync.recommendation.service.PostDetailCache;
 import com.studysync.recommendation.service.PostScoreService;
+import com.studysync.recommendation.service.TrendingService;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 /**
  * Enhanced Kafka Consumer for user interaction and post lifecycle events.
  * 
@@ -20,6 +33,9 @@ import org.springframework.stereotype.Component;
  * - Manual acknowledgment for reliable processing
  * - Error handling with DLQ support
  * - Retry logic for transient failures
+ * - Batch mode for interaction events, fanned out to parallel lanes by post
+ * - JSON or protobuf payloads, chosen per record by the event-format header
+ * - Processed interactions feed this node's in-memory trending sketches
  */
 @Component
 @RequiredArgsConstructor
@@ -30,34 +46,46 @@ public class EnhancedEventConsumer {
     private final PostScoreService postScoreService;
     private final ObjectMapper objectMapper;
     private final IdempotencyService idempotencyService;
+    private final KeyOrderedDispatcher dispatcher;
+    private final PostDetailCache postDetailCache;
+    private final TrendingService trendingService;
+
+    private EventDeserializer<UserInteractionEvent> interactionDeserializer;
+    private EventDeserializer<PostLifecycleEvent> lifecycleDeserializer;
+
+    @PostConstruct
+    public void init() {
+        interactionDeserializer = EventDeserializer.forInteractions(objectMapper);
+        lifecycleDeserializer = EventDeserializer.forLifecycle(objectMapper);
+    }
 
     /**
-     * Consume user interaction events (like, view, comment, share, bookmark)
+     * Consume user interaction events (like, view, comment, share, bookmark).
+     * Only active when batch mode is disabled.
      */
-    @KafkaListener(topics = "${app.kafka.topics.user-interaction}", groupId = "${spring.kafka.consumer.group-id}", containerFactory = "kafkaListenerContainerFactory")
-    public void consumeInteractionEvent(ConsumerRecord<String, String> record, Acknowledgment ack) {
+    @KafkaListener(topics = "${app.kafka.topics.user-interaction}", groupId = "${spring.kafka.consumer.group-id}", containerFactory = "kafkaListenerContainerFactory", autoStartup = "#{!${app.kafka.consumer.batch-enabled:true}}")
+    public void consumeInteractionEvent(ConsumerRecord<String, byte[]> record, Acknowledgment ack) {
         String eventId = null;
+        boolean claimed = false;
         try {
-            UserInteractionEvent event = objectMapper.readValue(record.value(), UserInteractionEvent.class);
+            UserInteractionEvent event = decodeInteraction(record);
             eventId = extractEventId(event);
 
             log.info("Received interaction event: userId={}, postId={}, type={}, eventId={}",
                     event.getUserId(), event.getPostId(), event.getInteractionType(), eventId);
 
-            // Idempotency check - skip if already processed
-            if (eventId != null && idempotencyService.isProcessed(eventId)) {
+            // Idempotency claim - skip if already processed (or being processed)
+            if (!idempotencyService.tryClaim(eventId)) {
                 log.debug("Skipping duplicate event: {}", eventId);
                 ack.acknowledge();
                 return;
             }
+            claimed = true;
 
             // Process the interaction
             interactionService.processInteractionEvent(event);
-
-            // Mark as processed for idempotency
-            if (eventId != null) {
-                idempotencyService.markProcessed(eventId);
-            }
+            idempotencyService.confirm(eventId);
+            trendingService.record(List.of(event));
 
             ack.acknowledge();
             log.debug("Successfully processed interaction event: {}", eventId);
@@ -65,38 +93,164 @@ public class EnhancedEventConsumer {
         } catch (Exception e) {
             log.error("Error processing interaction event: offset={}, key={}, eventId={}",
                     record.offset(), record.key(), eventId, e);
+            if (claimed) {
+                idempotencyService.clearProcessed(eventId);
+            }
             // Don't acknowledge - will be retried or sent to DLQ based on config
             throw new RuntimeException("Failed to process interaction event", e);
         }
     }
 
+    /**
+     * Consume a whole poll of user interaction events.
+     *
+     * Deltas for the same post and (user, category) are coalesced and written in
+     * one transaction. If that fails, records are replayed one by one so the
+     * failing record can be isolated: everything before it is committed and the
+     * record itself is handed to the error handler (retry, then DLQ).
+     */
+    @KafkaListener(topics = "${app.kafka.topics.user-interaction}", groupId = "${spring.kafka.consumer.group-id}", containerFactory = "batchKafkaListenerContainerFactory", autoStartup = "${app.kafka.consumer.batch-enabled:true}")
+    public void consumeInteractionEvents(List<ConsumerRecord<String, byte[]>> records, Acknowledgment ack) {
+        List<UserInteractionEvent> events = new ArrayList<>(records.size());
+        List<String> eventIds = new ArrayList<>(records.size());
+        List<Integer> indexes = new ArrayList<>(records.size());
+        Set<String> batchEventIds = new HashSet<>();
+
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<String, byte[]> record = records.get(i);
+            UserInteractionEvent event;
+            try {
+                event = decodeInteraction(record);
+            } catch (Exception e) {
+                log.error("Error parsing interaction event: offset={}, key={}", record.offset(), record.key(), e);
+                // Process everything before the bad record, then split it out
+                processInteractionBatch(events, eventIds, indexes, records);
+                throw new BatchListenerFailedException("Failed to parse interaction event", e, i);
+            }
+
+            String eventId = extractEventId(event);
+            if (!batchEventIds.add(eventId)) {
+                log.debug("Skipping duplicate event within batch: {}", eventId);
+                continue;
+            }
+
+            events.add(event);
+            eventIds.add(eventId);
+            indexes.add(i);
+        }
+
+        int processed = processInteractionBatch(events, eventIds, indexes, records);
+        ack.acknowledge();
+        log.debug("Successfully processed batch of {} interaction events ({} new)", records.size(), processed);
+    }
+
+    /**
+     * Claim and process a run of parsed events; returns how many were new.
+     * Claims of events that were not processed are released on failure.
+     */
+    private int processInteractionBatch(List<UserInteractionEvent> events, List<String> eventIds,
+            List<Integer> indexes, List<ConsumerRecord<String, byte[]>> records) {
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        // Claim the whole batch at once; duplicates are dropped here
+        Set<String> claimed = idempotencyService.claimAll(eventIds);
+        if (claimed.size() < events.size()) {
+            List<UserInteractionEvent> newEvents = new ArrayList<>(claimed.size());
+            List<String> newEventIds = new ArrayList<>(claimed.size());
+            List<Integer> newIndexes = new ArrayList<>(claimed.size());
+            for (int i = 0; i < events.size(); i++) {
+                if (claimed.contains(eventIds.get(i))) {
+                    newEvents.add(events.get(i));
+                    newEventIds.add(eventIds.get(i));
+                    newIndexes.add(indexes.get(i));
+                } else {
+                    log.debug("Skipping duplicate event: {}", eventIds.get(i));
+                }
+            }
+            events = newEvents;
+            eventIds = newEventIds;
+            indexes = newIndexes;
+        }
+
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        // Same post -> same lane, so per-post order holds while other posts run in parallel
+        List<UserInteractionEvent> claimedEvents = events;
+        List<String> claimedIds = eventIds;
+        KeyOrderedDispatcher.LaneFailure failure = dispatcher.dispatch(claimedEvents,
+                UserInteractionEvent::getPostId,
+                (laneEvents, positions) -> processLane(laneEvents, positions, claimedIds));
+
+        if (failure != null) {
+            int index = indexes.get(failure.getPosition());
+            ConsumerRecord<String, byte[]> record = records.get(index);
+            log.error("Error processing interaction event: offset={}, key={}, eventId={}",
+                    record.offset(), record.key(), eventIds.get(failure.getPosition()), failure.getCause());
+            // Everything before this record is done; it and later records are redelivered
+            throw new BatchListenerFailedException("Failed to process interaction event", failure.getCause(), index);
+        }
+        return events.size();
+    }
+
+    /**
+     * Process one lane in a single transaction, falling back to one record at a
+     * time to isolate a failure. Claims of unprocessed lane events are released.
+     */
+    private void processLane(List<UserInteractionEvent> events, List<Integer> positions, List<String> eventIds)
+            throws KeyOrderedDispatcher.LaneFailure {
+        try {
+            interactionService.processInteractionEvents(events);
+            idempotencyService.confirm(positions.stream().map(eventIds::get).toList());
+            trendingService.record(events);
+            return;
+        } catch (Exception e) {
+            log.warn("Batch of {} interaction events failed, falling back to per-record processing: {}",
+                    events.size(), e.getMessage());
+        }
+
+        for (int i = 0; i < events.size(); i++) {
+            try {
+                interactionService.processInteractionEvent(events.get(i));
+                idempotencyService.confirm(eventIds.get(positions.get(i)));
+                trendingService.record(List.of(events.get(i)));
+            } catch (Exception e) {
+                idempotencyService.clearProcessed(positions.subList(i, positions.size()).stream()
+                        .map(eventIds::get)
+                        .toList());
+                throw new KeyOrderedDispatcher.LaneFailure(positions.get(i), e);
+            }
+        }
+    }
+
     /**
      * Consume post lifecycle events (created, updated, deleted)
      */
     @KafkaListener(topics = "${app.kafka.topics.post-lifecycle:post-lifecycle-events}", groupId = "${spring.kafka.consumer.group-id}-lifecycle", containerFactory = "kafkaListenerContainerFactory")
-    public void consumePostLifecycleEvent(ConsumerRecord<String, String> record, Acknowledgment ack) {
+    public void consumePostLifecycleEvent(ConsumerRecord<String, byte[]> record, Acknowledgment ack) {
         String eventId = null;
+        boolean claimed = false;
         try {
-            PostLifecycleEvent event = objectMapper.readValue(record.value(), PostLifecycleEvent.class);
+            PostLifecycleEvent event = decodeLifecycle(record);
             eventId = event.getEventId();
 
             log.info("Received post lifecycle event: type={}, postId={}, authorId={}, eventId={}",
                     event.getEventType(), event.getPostId(), event.getAuthorId(), eventId);
 
-            // Idempotency check
-            if (eventId != null && idempotencyService.isProcessed(eventId)) {
+            // Idempotency claim
+            if (!idempotencyService.tryClaim(eventId)) {
                 log.debug("Skipping duplicate lifecycle event: {}", eventId);
                 ack.acknowledge();
                 return;
             }
+            claimed = true;
 
             // Process based on event type
             processPostLifecycleEvent(event);
-
-            // Mark as processed
-            if (eventId != null) {
-                idempotencyService.markProcessed(eventId);
-            }
+            idempotencyService.confirm(eventId);
 
             ack.acknowledge();
             log.debug("Successfully processed lifecycle event: {}", eventId);
@@ -104,6 +258,9 @@ public class EnhancedEventConsumer {
         } catch (Exception e) {
             log.error("Error processing lifecycle event: offset={}, key={}, eventId={}",
                     record.offset(), record.key(), eventId, e);
+            if (claimed) {
+                idempotencyService.clearProcessed(eventId);
+            }
             throw new RuntimeException("Failed to process lifecycle event", e);
         }
     }
@@ -112,9 +269,13 @@ public class EnhancedEventConsumer {
      * Dead Letter Queue consumer for failed messages
      */
     @KafkaListener(topics = "${app.kafka.topics.dlq:recommendation-dlq}", groupId = "${spring.kafka.consumer.group-id}-dlq")
-    public void consumeDlqEvent(ConsumerRecord<String, String> record, Acknowledgment ack) {
-        log.warn("DLQ message received: topic={}, offset={}, key={}, value={}",
-                record.topic(), record.offset(), record.key(), record.value());
+    public void consumeDlqEvent(ConsumerRecord<String, byte[]> record, Acknowledgment ack) {
+        EventFormat format = EventFormat.fromHeaders(record.headers());
+        log.warn("DLQ message received: topic={}, offset={}, key={}, format={}, value={}",
+                record.topic(), record.offset(), record.key(), format,
+                format == EventFormat.JSON && record.value() != null
+                        ? new String(record.value(), StandardCharsets.UTF_8)
+                        : (record.value() != null ? record.value().length + " bytes" : null));
 
         // Log for manual inspection - could also store in a database
         // In production, you might want to:
@@ -126,6 +287,11 @@ public class EnhancedEventConsumer {
     }
 
     private void processPostLifecycleEvent(PostLifecycleEvent event) {
+        // Any change to the post makes cached details stale
+        if (event.getPostId() != null) {
+            postDetailCache.invalidate(event.getPostId());
+        }
+
         switch (event.getEventTypeEnum()) {
             case POST_CREATED:
             case POST_PUBLISHED:
@@ -151,15 +317,24 @@ public class EnhancedEventConsumer {
         }
     }
 
+    private UserInteractionEvent decodeInteraction(ConsumerRecord<String, byte[]> record) {
+        return interactionDeserializer.deserialize(record.topic(), record.headers(), record.value());
+    }
+
+    private PostLifecycleEvent decodeLifecycle(ConsumerRecord<String, byte[]> record) {
+        return lifecycleDeserializer.deserialize(record.topic(), record.headers(), record.value());
+    }
+
     private String extractEventId(UserInteractionEvent event) {
         if (event.getMetadata() != null && event.getMetadata().containsKey("eventId")) {
             return event.getMetadata().get("eventId").toString();
         }
-        // Fallback: generate deterministic ID from event properties
+        // Fallback: generate deterministic ID from event properties. Protobuf
+        // carries epoch millis, so the timestamp is truncated to match JSON copies
         return String.format("%s-%s-%s-%s",
                 event.getUserId(),
                 event.getPostId(),
                 event.getInteractionType(),
-                event.getTimestamp() != null ? event.getTimestamp().toString() : "null");
+                event.getTimestamp() != null ? event.getTimestamp().truncatedTo(ChronoUnit.MILLIS).toString() : "null");
     }
 }
@@ -1,25 +1,201 @@
 package com.studysync.recommendation.kafka.consumer;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisZSetCommands;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Service for tracking processed event IDs to ensure idempotency.
- * Uses Redis for distributed state across multiple consumer instances.
+ *
+ * Two layers:
+ * - An on-heap {@link RotatingBloomFilter} answers "definitely new" for almost
+ *   every event without touching Redis. Memory is fixed by configuration.
+ * - Redis (optional) confirms Bloom positives and shares state across
+ *   consumer instances. IDs are stored as 64-bit hashes in time-bucketed sets
+ *   ({@code processed_events:{bucket}}) instead of one key per event, and new
+ *   IDs are recorded asynchronously in one pipelined call per batch.
+ *
+ * The local filter only knows what this instance processed since it started.
+ * Redeliveries happen after a restart or a rebalance, when the filter is empty
+ * or another instance processed the records, so for a grace period after
+ * startup and after every partition assignment all claims go through Redis
+ * with an atomic check-and-add script. Bloom positives are always claimed the
+ * same way. If Redis cannot be reached, claims fail open: the event is
+ * processed rather than dropped.
+ *
+ * With Redis disabled, a Bloom positive is taken as a duplicate without
+ * confirmation, so roughly the configured false-positive rate of new events
+ * is skipped. Such skips are counted in {@code idempotency.unconfirmed.skips};
+ * keep Redis enabled where dropping an event is not acceptable.
+ *
+ * A claim only holds for a short processing TTL ({@code processing_events},
+ * a sorted set scored by expiry), so the events of a consumer that dies
+ * mid-batch can be claimed again once they are redelivered. After the
+ * processing transaction commits the caller confirms the claim with
+ * {@link #confirm(Collection)}, which records the IDs for the full retention
+ * TTL. A claim that is not followed by successful processing must be
+ * released with {@link #clearProcessed(String)}.
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
-public class IdempotencyService {
+public class IdempotencyService implements ConsumerAwareRebalanceListener {
 
     private final RedisTemplate<String, String> redisTemplate;
+    private final MeterRegistry meterRegistry;
 
-    private static final String KEY_PREFIX = "processed_event:";
-    private static final Duration TTL = Duration.ofHours(24); // Keep for 24 hours
+    private static final String BUCKET_PREFIX = "processed_events:";
+    private static final String PROCESSING_KEY = "processing_events";
+    private static final int MAX_RELEASED = 100_000;
+
+    /**
+     * Claim members atomically: for each member, 1 if it is in a processed
+     * bucket or holds an unexpired processing claim (KEYS[#KEYS]), else 0
+     * after adding a processing claim that expires at ARGV[2]. ARGV[1] is the
+     * current time and ARGV[3] the processing set's TTL, both in millis.
+     */
+    private static final RedisScript<List> CLAIM = new DefaultRedisScript<>("""
+            local processing = KEYS[#KEYS]
+            redis.call('zremrangebyscore', processing, '-inf', ARGV[1])
+            local seen = {}
+            for i = 4, #ARGV do
+              local found = 0
+              for k = 1, #KEYS - 1 do
+                if redis.call('sismember', KEYS[k], ARGV[i]) == 1 then
+                  found = 1
+                  break
+                end
+              end
+              if found == 0 and redis.call('zadd', processing, 'NX', ARGV[2], ARGV[i]) == 0 then
+                found = 1
+              end
+              seen[#seen + 1] = found
+            end
+            redis.call('pexpire', processing, ARGV[3])
+            return seen
+            """, List.class);
+
+    @Value("${app.idempotency.ttl:24h}")
+    private Duration ttl;
+
+    // A claim lapses after this long unless confirmed; covers one batch's processing
+    @Value("${app.idempotency.processing-ttl:30s}")
+    private Duration processingTtl;
+
+    @Value("${app.idempotency.local-filter.expected-insertions:1000000}")
+    private long expectedInsertions;
+
+    @Value("${app.idempotency.local-filter.false-positive-rate:0.001}")
+    private double falsePositiveRate;
+
+    @Value("${app.idempotency.local-filter.segments:4}")
+    private int segments;
+
+    @Value("${app.idempotency.redis.enabled:true}")
+    private boolean redisEnabled;
+
+    // After startup or a partition assignment, every claim is checked in Redis for this long
+    @Value("${app.idempotency.redis.assignment-grace:2m}")
+    private Duration assignmentGrace;
+
+    private RotatingBloomFilter filter;
+
+    private volatile long strictUntil;
+
+    private Counter unconfirmedSkips;
+
+    private Counter releasedEvictions;
+
+    // Claims released after a failure; the Bloom filter cannot forget them. Bounded by
+    // forgetting the oldest; Redis still admits those on retry, the local filter alone does not.
+    private final Set<String> released = Collections.newSetFromMap(Collections.synchronizedMap(
+            new LinkedHashMap<>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    if (size() > MAX_RELEASED) {
+                        releasedEvictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            }));
+
+    // Claimed here but not yet written to Redis
+    private final Set<String> recording = ConcurrentHashMap.newKeySet();
+
+    // A full queue makes the consumer write itself instead of dropping records
+    private final ThreadPoolExecutor recorder = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(1000),
+            r -> {
+                Thread thread = new Thread(r, "idempotency-recorder");
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.CallerRunsPolicy());
+
+    @PostConstruct
+    public void init() {
+        strictUntil = System.currentTimeMillis() + assignmentGrace.toMillis();
+        unconfirmedSkips = Counter.builder("idempotency.unconfirmed.skips")
+                .description("Events skipped on a local filter hit that Redis could not confirm")
+                .register(meterRegistry);
+        releasedEvictions = Counter.builder("idempotency.released.evictions")
+                .description("Released claims forgotten to bound memory")
+                .register(meterRegistry);
+        filter = new RotatingBloomFilter(expectedInsertions, falsePositiveRate, segments, ttl.toMillis());
+        log.info("Idempotency filter: {} segments of {} ms, ~{} KB on heap, redis confirmation {}",
+                segments, filter.getSegmentMillis(), filter.memoryBytes() / 1024,
+                redisEnabled ? "enabled" : "disabled");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        recorder.shutdown();
+        try {
+            recorder.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Records of newly assigned partitions may have been processed by their
+     * previous owner, which this instance's filter knows nothing about
+     */
+    @Override
+    public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+        if (!partitions.isEmpty()) {
+            strictUntil = System.currentTimeMillis() + assignmentGrace.toMillis();
+            log.debug("Claiming through Redis for {} after assignment of {}", assignmentGrace, partitions);
+        }
+    }
 
     /**
      * Check if an event has already been processed
@@ -28,16 +204,24 @@ public class IdempotencyService {
         if (eventId == null || eventId.isEmpty()) {
             return false;
         }
-
-        try {
-            String key = KEY_PREFIX + eventId;
-            Boolean exists = redisTemplate.hasKey(key);
-            return Boolean.TRUE.equals(exists);
-        } catch (Exception e) {
-            log.warn("Failed to check idempotency for event {}: {}", eventId, e.getMessage());
-            // Fail open - process the event if Redis is unavailable
+        if (released.contains(eventId)) {
             return false;
         }
+        if (recording.contains(eventId)) {
+            return true;
+        }
+        boolean strict = System.currentTimeMillis() < strictUntil;
+        if (!strict && !filter.mightContain(eventId)) {
+            return false;
+        }
+        if (!redisEnabled) {
+            boolean seen = filter.mightContain(eventId);
+            if (seen) {
+                unconfirmedSkips.increment();
+            }
+            return seen;
+        }
+        return !lookupNew(List.of(eventId)).contains(eventId);
     }
 
     /**
@@ -48,14 +232,120 @@ public class IdempotencyService {
             return;
         }
 
-        try {
-            String key = KEY_PREFIX + eventId;
-            redisTemplate.opsForValue().set(key, "1", TTL);
-            log.debug("Marked event as processed: {}", eventId);
-        } catch (Exception e) {
-            log.warn("Failed to mark event as processed {}: {}", eventId, e.getMessage());
-            // Continue - worst case is duplicate processing
+        released.remove(eventId);
+        filter.put(eventId);
+        confirm(eventId);
+        log.debug("Marked event as processed: {}", eventId);
+    }
+
+    /**
+     * Confirm a single claim, see {@link #confirm(Collection)}
+     */
+    public void confirm(String eventId) {
+        if (eventId == null || eventId.isEmpty()) {
+            return;
         }
+        confirm(List.of(eventId));
+    }
+
+    /**
+     * Turn claims into processed markers for the full retention TTL. Call once
+     * the processing transaction has committed.
+     */
+    public void confirm(Collection<String> eventIds) {
+        List<String> ids = eventIds.stream()
+                .filter(id -> id != null && !id.isEmpty())
+                .toList();
+        if (!redisEnabled || ids.isEmpty()) {
+            return;
+        }
+
+        byte[][] members = ids.stream().map(IdempotencyService::member).toArray(byte[][]::new);
+        long bucketMillis = filter.getSegmentMillis();
+        long bucket = System.currentTimeMillis() / bucketMillis;
+        long expireSeconds = (bucketMillis + ttl.toMillis()) / 1000;
+
+        recorder.execute(() -> {
+            try {
+                byte[] key = bytes(BUCKET_PREFIX + bucket);
+                redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    connection.setCommands().sAdd(key, members);
+                    connection.keyCommands().expire(key, expireSeconds);
+                    connection.zSetCommands().zRem(bytes(PROCESSING_KEY), members);
+                    return null;
+                });
+            } catch (Exception e) {
+                log.warn("Failed to confirm {} processed events: {}", members.length, e.getMessage());
+                // Continue - worst case is duplicate processing once the claims lapse
+            }
+        });
+    }
+
+    /**
+     * Claim an event for processing.
+     *
+     * @return true if the event is new and now claimed by the caller
+     */
+    public boolean tryClaim(String eventId) {
+        if (eventId == null || eventId.isEmpty()) {
+            return true;
+        }
+        return claimAll(List.of(eventId)).contains(eventId);
+    }
+
+    /**
+     * Claim a batch of events. Outside the post-assignment grace period, Bloom
+     * negatives are new without any Redis call; positives (and, during the
+     * grace period, every event) are claimed atomically in Redis in one round
+     * trip.
+     *
+     * @return the IDs that were new and are now claimed by the caller
+     */
+    public Set<String> claimAll(Collection<String> eventIds) {
+        boolean strict = redisEnabled && System.currentTimeMillis() < strictUntil;
+        Set<String> claimed = new LinkedHashSet<>();
+        List<String> local = new ArrayList<>();
+        List<String> remote = new ArrayList<>();
+
+        for (String id : eventIds) {
+            if (id == null || id.isEmpty() || claimed.contains(id) || local.contains(id) || remote.contains(id)) {
+                continue;
+            }
+            if (released.remove(id)) {
+                local.add(id);
+            } else if (recording.contains(id)) {
+                // Claimed here moments ago; Redis may not have it yet
+                continue;
+            } else if (strict || filter.mightContain(id)) {
+                if (redisEnabled) {
+                    remote.add(id);
+                } else {
+                    // Possibly a false positive; nothing can confirm it
+                    unconfirmedSkips.increment();
+                }
+            } else {
+                local.add(id);
+            }
+        }
+
+        if (!remote.isEmpty()) {
+            Set<String> fresh = claimInRedis(remote);
+            if (fresh == null) {
+                // Redis unavailable: process rather than drop
+                local.addAll(remote);
+            } else {
+                claimed.addAll(fresh);
+            }
+        }
+        claimed.addAll(local);
+
+        for (String id : claimed) {
+            filter.put(id);
+        }
+        recordClaimsAsync(local);
+
+        log.debug("Claimed {} events ({} checked in Redis)", claimed.size(), remote.size());
+        return claimed;
     }
 
     /**
@@ -65,13 +355,159 @@ public class IdempotencyService {
         if (eventId == null || eventId.isEmpty()) {
             return;
         }
+        clearProcessed(List.of(eventId));
+    }
+
+    /**
+     * Release claims for several events in a single round trip
+     */
+    public void clearProcessed(Collection<String> eventIds) {
+        List<String> ids = eventIds.stream()
+                .filter(id -> id != null && !id.isEmpty())
+                .toList();
+
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        released.addAll(ids);
+        if (!redisEnabled) {
+            return;
+        }
+
+        try {
+            List<String> buckets = liveBuckets();
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                byte[][] members = ids.stream().map(IdempotencyService::member).toArray(byte[][]::new);
+                connection.zSetCommands().zRem(bytes(PROCESSING_KEY), members);
+                for (String bucket : buckets) {
+                    connection.setCommands().sRem(bytes(bucket), members);
+                }
+                return null;
+            });
+            log.debug("Cleared processed markers for {} events", ids.size());
+        } catch (Exception e) {
+            log.warn("Failed to clear processed markers for {} events: {}", ids.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Claim candidates atomically in Redis on the calling thread
+     *
+     * @return the candidates that were new, or null if Redis could not be reached
+     */
+    private Set<String> claimInRedis(List<String> candidates) {
+        try {
+            List<String> keys = liveBuckets();
+            keys.add(PROCESSING_KEY);
+            long now = System.currentTimeMillis();
+            Object[] args = new Object[candidates.size() + 3];
+            args[0] = String.valueOf(now);
+            args[1] = String.valueOf(now + processingTtl.toMillis());
+            args[2] = String.valueOf(processingTtl.toMillis());
+            for (int i = 0; i < candidates.size(); i++) {
+                args[i + 3] = Long.toString(RotatingBloomFilter.hash(candidates.get(i)));
+            }
+
+            List<?> seen = redisTemplate.execute(CLAIM, keys, args);
+            if (seen == null || seen.size() != candidates.size()) {
+                throw new IllegalStateException("Unexpected claim script result");
+            }
+            Set<String> fresh = new LinkedHashSet<>();
+            for (int i = 0; i < candidates.size(); i++) {
+                if (((Number) seen.get(i)).longValue() == 0L) {
+                    fresh.add(candidates.get(i));
+                }
+            }
+            return fresh;
+        } catch (Exception e) {
+            log.warn("Failed to claim {} events in Redis, processing them: {}", candidates.size(), e.getMessage());
+            return null;
+        }
+    }
 
+    /**
+     * Candidates not recorded in Redis; all of them if Redis is unavailable
+     */
+    private Set<String> lookupNew(List<String> candidates) {
         try {
-            String key = KEY_PREFIX + eventId;
-            redisTemplate.delete(key);
-            log.debug("Cleared processed marker for event: {}", eventId);
+            List<String> buckets = liveBuckets();
+            List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (String id : candidates) {
+                    byte[] member = member(id);
+                    for (String bucket : buckets) {
+                        connection.setCommands().sIsMember(bytes(bucket), member);
+                    }
+                }
+                return null;
+            });
+
+            Set<String> fresh = new LinkedHashSet<>();
+            for (int i = 0; i < candidates.size(); i++) {
+                boolean seen = false;
+                for (int b = 0; b < buckets.size(); b++) {
+                    seen |= Boolean.TRUE.equals(results.get(i * buckets.size() + b));
+                }
+                if (!seen) {
+                    fresh.add(candidates.get(i));
+                }
+            }
+            return fresh;
         } catch (Exception e) {
-            log.warn("Failed to clear processed marker {}: {}", eventId, e.getMessage());
+            log.warn("Failed to check {} events against Redis: {}", candidates.size(), e.getMessage());
+            return new LinkedHashSet<>(candidates);
         }
     }
+
+    /**
+     * Record processing claims of locally claimed IDs off the consumer thread,
+     * so other instances see them
+     */
+    private void recordClaimsAsync(Collection<String> ids) {
+        if (!redisEnabled || ids.isEmpty()) {
+            return;
+        }
+
+        List<String> pending = List.copyOf(ids);
+        byte[][] members = pending.stream().map(IdempotencyService::member).toArray(byte[][]::new);
+        long expiresAt = System.currentTimeMillis() + processingTtl.toMillis();
+
+        recording.addAll(pending);
+        recorder.execute(() -> {
+            try {
+                byte[] key = bytes(PROCESSING_KEY);
+                redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    for (byte[] member : members) {
+                        connection.zSetCommands().zAdd(key, expiresAt, member,
+                                RedisZSetCommands.ZAddArgs.ifNotExists());
+                    }
+                    connection.keyCommands().pExpire(key, processingTtl.toMillis());
+                    return null;
+                });
+            } catch (Exception e) {
+                log.warn("Failed to record {} event claims: {}", members.length, e.getMessage());
+                // Continue - worst case is duplicate processing on another instance
+            } finally {
+                pending.forEach(recording::remove);
+            }
+        });
+    }
+
+    private List<String> liveBuckets() {
+        long bucketMillis = filter.getSegmentMillis();
+        long currentBucket = System.currentTimeMillis() / bucketMillis;
+        List<String> buckets = new ArrayList<>(segments + 1);
+        for (long b = currentBucket - segments; b <= currentBucket; b++) {
+            buckets.add(BUCKET_PREFIX + b);
+        }
+        return buckets;
+    }
+
+    private static byte[] member(String eventId) {
+        return Long.toString(RotatingBloomFilter.hash(eventId)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
 }
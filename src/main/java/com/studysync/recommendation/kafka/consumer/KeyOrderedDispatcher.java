@@ -0,0 +1,164 @@
+package com.studysync.recommendation.kafka.consumer;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Fans a polled batch out to parallel lanes by key.
+ *
+ * Items with the same key always land in the same lane and keep their
+ * relative order, while unrelated keys are processed concurrently. The result
+ * reports the lowest failed position in the original batch, which is the
+ * point up to which offsets can safely be committed.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class KeyOrderedDispatcher {
+
+    private final Environment environment;
+
+    @Value("${app.kafka.consumer.key-workers:4}")
+    private int lanes;
+
+    @Value("${spring.kafka.listener.concurrency:3}")
+    private int listenerConcurrency;
+
+    private Executor executor;
+
+    /**
+     * Processes one lane; positions are indexes into the dispatched list
+     */
+    @FunctionalInterface
+    public interface LaneProcessor<T> {
+        void process(List<T> items, List<Integer> positions) throws LaneFailure;
+    }
+
+    /**
+     * Thrown by a lane to report the position of the item that failed
+     */
+    public static class LaneFailure extends Exception {
+        private final int position;
+
+        public LaneFailure(int position, Throwable cause) {
+            super(cause);
+            this.position = position;
+        }
+
+        public int getPosition() {
+            return position;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        // Lane 0 runs on the listener thread itself
+        int workers = Math.max(1, (lanes - 1) * listenerConcurrency);
+
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor virtualExecutor = new SimpleAsyncTaskExecutor("key-worker-");
+            virtualExecutor.setVirtualThreads(true);
+            virtualExecutor.setConcurrencyLimit(workers);
+            executor = virtualExecutor;
+        } else {
+            AtomicInteger counter = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(workers, r -> {
+                Thread thread = new Thread(r, "key-worker-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        log.info("Key-ordered dispatcher: {} lanes per batch", lanes);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor instanceof ExecutorService executorService) {
+            executorService.shutdown();
+            try {
+                executorService.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Process all items, grouped into lanes by key, and wait for every lane.
+     *
+     * @return the failure with the lowest position, or null if all lanes succeeded
+     */
+    public <T> LaneFailure dispatch(List<T> items, Function<T, Object> keyOf, LaneProcessor<T> processor) {
+        if (items.isEmpty()) {
+            return null;
+        }
+
+        int laneCount = Math.min(lanes, items.size());
+        List<List<T>> laneItems = new ArrayList<>(laneCount);
+        List<List<Integer>> lanePositions = new ArrayList<>(laneCount);
+        for (int i = 0; i < laneCount; i++) {
+            laneItems.add(new ArrayList<>());
+            lanePositions.add(new ArrayList<>());
+        }
+
+        for (int i = 0; i < items.size(); i++) {
+            int lane = Math.floorMod(spread(keyOf.apply(items.get(i)).hashCode()), laneCount);
+            laneItems.get(lane).add(items.get(i));
+            lanePositions.get(lane).add(i);
+        }
+
+        List<CompletableFuture<LaneFailure>> futures = new ArrayList<>(laneCount);
+        for (int lane = 1; lane < laneCount; lane++) {
+            List<T> laneBatch = laneItems.get(lane);
+            List<Integer> positions = lanePositions.get(lane);
+            if (!laneBatch.isEmpty()) {
+                futures.add(CompletableFuture.supplyAsync(() -> runLane(processor, laneBatch, positions), executor));
+            }
+        }
+
+        LaneFailure lowest = runLane(processor, laneItems.get(0), lanePositions.get(0));
+        for (CompletableFuture<LaneFailure> future : futures) {
+            LaneFailure failure = future.join();
+            if (failure != null && (lowest == null || failure.getPosition() < lowest.getPosition())) {
+                lowest = failure;
+            }
+        }
+        return lowest;
+    }
+
+    private <T> LaneFailure runLane(LaneProcessor<T> processor, List<T> items, List<Integer> positions) {
+        if (items.isEmpty()) {
+            return null;
+        }
+        try {
+            processor.process(items, positions);
+            return null;
+        } catch (LaneFailure failure) {
+            return failure;
+        } catch (RuntimeException e) {
+            // Unexpected lane error: nothing in this lane is known to be done
+            return new LaneFailure(positions.get(0), e);
+        }
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,58 @@
+package com.studysync.recommendation.kafka.consumer;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.studysync.recommendation.dto.PostScoreChangeEvent;
+import com.studysync.recommendation.service.RankingReplica;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Feeds post score changes into this node's {@link RankingReplica}.
+ *
+ * Every node needs every change, so the group ID is unique per instance; the
+ * topic is compacted, so a new node replays the latest state per post.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PostScoreChangeConsumer {
+
+    private final RankingReplica rankingReplica;
+    private final ObjectMapper objectMapper;
+
+    private ObjectMapper jsonMapper;
+
+    @PostConstruct
+    public void init() {
+        // Plain JSON payloads carry no type ids
+        jsonMapper = objectMapper.copy()
+                .deactivateDefaultTyping()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    }
+
+    @KafkaListener(topics = "${app.kafka.topics.post-score-changes:post-score-changes}", groupId = "${spring.kafka.consumer.group-id}-ranking-${random.uuid}", containerFactory = "batchKafkaListenerContainerFactory", autoStartup = "${app.ranking.replica.enabled:true}")
+    public void consumeScoreChanges(List<ConsumerRecord<String, byte[]>> records, Acknowledgment ack) {
+        for (ConsumerRecord<String, byte[]> record : records) {
+            if (record.value() == null) {
+                continue;
+            }
+            try {
+                rankingReplica.apply(jsonMapper.readValue(record.value(), PostScoreChangeEvent.class));
+            } catch (Exception e) {
+                // State stream: a newer change for the post will correct it
+                log.warn("Skipping unreadable score change: offset={}, key={}: {}",
+                        record.offset(), record.key(), e.getMessage());
+            }
+        }
+        ack.acknowledge();
+        log.debug("Applied {} score changes to ranking replica", records.size());
+    }
+}
@@ -0,0 +1,145 @@
+package com.studysync.recommendation.kafka.consumer;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Memory-bounded, time-rotating Bloom filter for event IDs.
+ *
+ * The retention window is split into a fixed number of segments. New IDs go
+ * into the current segment; lookups check every segment. When a segment's
+ * time slice ends the oldest segment is replaced with an empty one, so memory
+ * stays constant no matter how many events arrive (a higher rate only raises
+ * the false positive rate). Bit updates are lock-free.
+ */
+public class RotatingBloomFilter {
+
+    private final int segmentCount;
+    private final int bitsPerSegment;
+    private final int hashFunctions;
+    private final long segmentMillis;
+
+    private final AtomicReferenceArray<AtomicLongArray> segments;
+    private final AtomicLong nextRotationAt;
+    private volatile int current;
+
+    /**
+     * @param expectedInsertions expected IDs per segment
+     * @param falsePositiveRate  target false positive rate per segment
+     * @param segmentCount       number of segments covering the window
+     * @param windowMillis       total retention window
+     */
+    public RotatingBloomFilter(long expectedInsertions, double falsePositiveRate, int segmentCount, long windowMillis) {
+        if (expectedInsertions <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1 || segmentCount < 2) {
+            throw new IllegalArgumentException("Invalid Bloom filter configuration");
+        }
+
+        long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bitsPerSegment = (int) Math.min(Integer.MAX_VALUE - 63, Math.max(64, bits));
+        this.hashFunctions = Math.max(1, (int) Math.round((double) bitsPerSegment / expectedInsertions * Math.log(2)));
+        this.segmentCount = segmentCount;
+        this.segmentMillis = Math.max(1, windowMillis / segmentCount);
+
+        this.segments = new AtomicReferenceArray<>(segmentCount);
+        for (int i = 0; i < segmentCount; i++) {
+            segments.set(i, newSegment());
+        }
+        this.nextRotationAt = new AtomicLong(System.currentTimeMillis() + segmentMillis);
+    }
+
+    /**
+     * @return false if the ID was definitely not added within the window
+     */
+    public boolean mightContain(String id) {
+        rotateIfDue(System.currentTimeMillis());
+        long hash = hash(id);
+        for (int i = 0; i < segmentCount; i++) {
+            if (contains(segments.get(i), hash)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void put(String id) {
+        rotateIfDue(System.currentTimeMillis());
+        long hash = hash(id);
+        AtomicLongArray segment = segments.get(current);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashFunctions; i++) {
+            int bit = index(h1 + i * h2);
+            long mask = 1L << bit;
+            int word = bit >>> 6;
+            long value;
+            do {
+                value = segment.get(word);
+                if ((value & mask) != 0) {
+                    break;
+                }
+            } while (!segment.compareAndSet(word, value, value | mask));
+        }
+    }
+
+    /**
+     * Approximate memory held by the bit arrays, in bytes
+     */
+    public long memoryBytes() {
+        return (long) segmentCount * (bitsPerSegment / 8);
+    }
+
+    public long getSegmentMillis() {
+        return segmentMillis;
+    }
+
+    void rotateIfDue(long now) {
+        long due = nextRotationAt.get();
+        while (now >= due) {
+            if (nextRotationAt.compareAndSet(due, due + segmentMillis)) {
+                int next = (current + 1) % segmentCount;
+                // The oldest segment becomes the new, empty current one
+                segments.set(next, newSegment());
+                current = next;
+            }
+            due = nextRotationAt.get();
+        }
+    }
+
+    private boolean contains(AtomicLongArray segment, long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashFunctions; i++) {
+            int bit = index(h1 + i * h2);
+            if ((segment.get(bit >>> 6) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int index(int combined) {
+        return (combined & Integer.MAX_VALUE) % bitsPerSegment;
+    }
+
+    private AtomicLongArray newSegment() {
+        return new AtomicLongArray((bitsPerSegment + 63) >>> 6);
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-16 chars, finished with the MurmurHash3 mixer
+     */
+    static long hash(String id) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < id.length(); i++) {
+            h ^= id.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
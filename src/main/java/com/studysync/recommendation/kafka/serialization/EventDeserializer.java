@@ -0,0 +1,75 @@
+package com.studysync.recommendation.kafka.serialization;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.studysync.recommendation.dto.PostLifecycleEvent;
+import com.studysync.recommendation.dto.UserInteractionEvent;
+import com.studysync.recommendation.kafka.proto.PostLifecycleEventMessage;
+import com.studysync.recommendation.kafka.proto.UserInteractionEventMessage;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.io.IOException;
+
+/**
+ * Kafka deserializer for interaction and lifecycle events that picks the wire
+ * format from the {@value EventFormat#HEADER} header.
+ *
+ * JSON is read with a copy of the given mapper that has default typing turned
+ * off, since producers send plain objects without type ids.
+ */
+public class EventDeserializer<T> implements Deserializer<T> {
+
+    @FunctionalInterface
+    interface ProtobufParser<T> {
+        T parse(byte[] data) throws InvalidProtocolBufferException;
+    }
+
+    private final Class<T> type;
+    private final ObjectMapper jsonMapper;
+    private final ProtobufParser<T> protobufParser;
+
+    EventDeserializer(Class<T> type, ObjectMapper objectMapper, ProtobufParser<T> protobufParser) {
+        this.type = type;
+        this.jsonMapper = objectMapper.copy()
+                .deactivateDefaultTyping()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.protobufParser = protobufParser;
+    }
+
+    public static EventDeserializer<UserInteractionEvent> forInteractions(ObjectMapper objectMapper) {
+        return new EventDeserializer<>(UserInteractionEvent.class, objectMapper,
+                data -> EventProtoMapper.fromMessage(UserInteractionEventMessage.parseFrom(data)));
+    }
+
+    public static EventDeserializer<PostLifecycleEvent> forLifecycle(ObjectMapper objectMapper) {
+        return new EventDeserializer<>(PostLifecycleEvent.class, objectMapper,
+                data -> EventProtoMapper.fromMessage(PostLifecycleEventMessage.parseFrom(data)));
+    }
+
+    @Override
+    public T deserialize(String topic, Headers headers, byte[] data) {
+        return deserialize(EventFormat.fromHeaders(headers), data);
+    }
+
+    @Override
+    public T deserialize(String topic, byte[] data) {
+        return deserialize(EventFormat.JSON, data);
+    }
+
+    private T deserialize(EventFormat format, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            return switch (format) {
+                case PROTOBUF -> protobufParser.parse(data);
+                case JSON -> jsonMapper.readValue(data, type);
+            };
+        } catch (IOException e) {
+            throw new SerializationException("Failed to decode " + format + " " + type.getSimpleName(), e);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.studysync.recommendation.kafka.serialization;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Wire formats for interaction and lifecycle events.
+ *
+ * The format travels in the {@value #HEADER} record header. Records without
+ * the header are JSON, so existing producers keep working while they migrate.
+ */
+public enum EventFormat {
+    JSON,
+    PROTOBUF;
+
+    public static final String HEADER = "event-format";
+
+    private final byte[] headerValue = name().toLowerCase().getBytes(StandardCharsets.UTF_8);
+
+    public byte[] headerValue() {
+        return headerValue;
+    }
+
+    /**
+     * Resolve the format of a record from its headers (JSON when absent)
+     */
+    public static EventFormat fromHeaders(Headers headers) {
+        if (headers == null) {
+            return JSON;
+        }
+        Header header = headers.lastHeader(HEADER);
+        if (header == null || header.value() == null) {
+            return JSON;
+        }
+        return fromName(new String(header.value(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parse a configured or header value, e.g. "protobuf"
+     */
+    public static EventFormat fromName(String name) {
+        if (name == null || name.isBlank()) {
+            return JSON;
+        }
+        try {
+            return valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported event format: " + name, e);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.studysync.recommendation.kafka.serialization;
+
+import com.studysync.recommendation.dto.PostLifecycleEvent;
+import com.studysync.recommendation.dto.UserInteractionEvent;
+import com.studysync.recommendation.kafka.proto.InteractionType;
+import com.studysync.recommendation.kafka.proto.PostLifecycleEventMessage;
+import com.studysync.recommendation.kafka.proto.UserInteractionEventMessage;
+import com.studysync.recommendation.model.UserInteraction;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Converts event DTOs to and from their protobuf messages (events.proto).
+ *
+ * Timestamps are UTC epoch milliseconds; map values are carried as strings.
+ */
+public final class EventProtoMapper {
+
+    private EventProtoMapper() {
+    }
+
+    public static UserInteractionEventMessage toMessage(UserInteractionEvent event) {
+        UserInteractionEventMessage.Builder builder = UserInteractionEventMessage.newBuilder()
+                .setTimestampMillis(toMillis(event.getTimestamp()))
+                .putAllMetadata(toStringMap(event.getMetadata()));
+        if (event.getUserId() != null) {
+            builder.setUserId(event.getUserId());
+        }
+        if (event.getPostId() != null) {
+            builder.setPostId(event.getPostId());
+        }
+        if (event.getInteractionType() != null) {
+            builder.setInteractionType(InteractionType.valueOf(event.getInteractionType().name()));
+        }
+        return builder.build();
+    }
+
+    public static UserInteractionEvent fromMessage(UserInteractionEventMessage message) {
+        return UserInteractionEvent.builder()
+                .userId(message.getUserId())
+                .postId(message.getPostId())
+                .interactionType(fromProto(message.getInteractionType()))
+                .timestamp(fromMillis(message.getTimestampMillis()))
+                .metadata(new HashMap<>(message.getMetadataMap()))
+                .build();
+    }
+
+    public static PostLifecycleEventMessage toMessage(PostLifecycleEvent event) {
+        PostLifecycleEventMessage.Builder builder = PostLifecycleEventMessage.newBuilder()
+                .setTimestampMillis(toMillis(event.getTimestamp()))
+                .putAllPostData(toStringMap(event.getPostData()));
+        if (event.getEventType() != null) {
+            builder.setEventType(event.getEventType());
+        }
+        if (event.getPostId() != null) {
+            builder.setPostId(event.getPostId());
+        }
+        if (event.getAuthorId() != null) {
+            builder.setAuthorId(event.getAuthorId());
+        }
+        if (event.getEventId() != null) {
+            builder.setEventId(event.getEventId());
+        }
+        return builder.build();
+    }
+
+    public static PostLifecycleEvent fromMessage(PostLifecycleEventMessage message) {
+        return PostLifecycleEvent.builder()
+                .eventType(message.getEventType())
+                .postId(message.getPostId())
+                .authorId(message.getAuthorId())
+                .timestamp(fromMillis(message.getTimestampMillis()))
+                .postData(new HashMap<>(message.getPostDataMap()))
+                .eventId(message.getEventId().isEmpty() ? null : message.getEventId())
+                .build();
+    }
+
+    private static UserInteraction.InteractionType fromProto(InteractionType type) {
+        if (type == InteractionType.INTERACTION_TYPE_UNSPECIFIED || type == InteractionType.UNRECOGNIZED) {
+            throw new IllegalArgumentException("Interaction event without a known interaction type");
+        }
+        return UserInteraction.InteractionType.valueOf(type.name());
+    }
+
+    private static long toMillis(LocalDateTime timestamp) {
+        return timestamp != null ? timestamp.toInstant(ZoneOffset.UTC).toEpochMilli() : 0L;
+    }
+
+    private static LocalDateTime fromMillis(long millis) {
+        return millis != 0L ? LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC) : null;
+    }
+
+    private static Map<String, String> toStringMap(Map<String, Object> values) {
+        Map<String, String> result = new HashMap<>();
+        if (values != null) {
+            values.forEach((key, value) -> {
+                if (key != null && value != null) {
+                    result.put(key, value.toString());
+                }
+            });
+        }
+        return result;
+    }
+}
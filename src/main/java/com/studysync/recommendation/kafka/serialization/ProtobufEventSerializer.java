@@ -0,0 +1,38 @@
+package com.studysync.recommendation.kafka.serialization;
+
+import com.studysync.recommendation.dto.PostLifecycleEvent;
+import com.studysync.recommendation.dto.UserInteractionEvent;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Kafka serializer writing interaction and lifecycle events as protobuf and
+ * tagging each record with the {@value EventFormat#HEADER} header.
+ */
+public class ProtobufEventSerializer implements Serializer<Object> {
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, Object data) {
+        byte[] payload = serialize(topic, data);
+        if (payload != null && headers != null) {
+            headers.remove(EventFormat.HEADER);
+            headers.add(EventFormat.HEADER, EventFormat.PROTOBUF.headerValue());
+        }
+        return payload;
+    }
+
+    @Override
+    public byte[] serialize(String topic, Object data) {
+        if (data == null) {
+            return null;
+        }
+        if (data instanceof UserInteractionEvent event) {
+            return EventProtoMapper.toMessage(event).toByteArray();
+        }
+        if (data instanceof PostLifecycleEvent event) {
+            return EventProtoMapper.toMessage(event).toByteArray();
+        }
+        throw new SerializationException("No protobuf schema for " + data.getClass().getName());
+    }
+}
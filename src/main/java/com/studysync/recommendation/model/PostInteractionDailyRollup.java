@@ -0,0 +1,43 @@
+package com.studysync.recommendation.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Per-post daily interaction counts for days whose raw rows have been dropped
+ * from user_interactions
+ */
+@Entity
+@Table(name = "post_interaction_daily_rollups", indexes = {
+        @Index(name = "idx_post_rollup_post_id", columnList = "postId")
+}, uniqueConstraints = {
+        @UniqueConstraint(name = "uk_post_rollup_post_day_type", columnNames = { "postId", "activityDate", "interactionType" })
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PostInteractionDailyRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long postId;
+
+    @Column(nullable = false)
+    private LocalDate activityDate;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private UserInteraction.InteractionType interactionType;
+
+    @Column(nullable = false)
+    private Long interactionCount;
+}
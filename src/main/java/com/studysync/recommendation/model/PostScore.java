@@ -5,6 +5,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 
 import java.time.LocalDateTime;
@@ -15,7 +16,10 @@ import java.time.LocalDateTime;
         @Index(name = "idx_post_score_updated", columnList = "lastUpdated"),
         @Index(name = "idx_post_score_category", columnList = "category"),
         @Index(name = "idx_post_score_author", columnList = "authorId"),
-        @Index(name = "idx_post_score_total", columnList = "totalScore")
+        @Index(name = "idx_post_score_total", columnList = "totalScore"),
+        // Keyset pagination over (rank score, postId), globally and per category
+        @Index(name = "idx_post_score_rank", columnList = "rankScore, postId"),
+        @Index(name = "idx_post_score_category_rank", columnList = "category, rankScore, postId")
 })
 @Data
 @Builder
@@ -39,6 +43,10 @@ public class PostScore {
     @Column(nullable = false)
     private Double totalScore;
 
+    // Time-decay-encoded ranking score, see RankScoreCodec; rankings order by it
+    @Column
+    private Double rankScore;
+
     @Column(nullable = false)
     private Integer likeCount;
 
@@ -61,6 +69,12 @@ public class PostScore {
     @Column(nullable = false)
     private LocalDateTime lastUpdated;
 
+    // Incremented by every write, including the engagement upsert; orders ranking changes
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
     @PrePersist
     @PreUpdate
     private void updateTimestamp() {
@@ -22,8 +22,17 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class UserInteraction {
 
+    /**
+     * IDs come from a sequence in blocks of {@link #ID_ALLOCATION_SIZE}, shared
+     * by Hibernate and the bulk append path (pooled-lo: a sequence value is the
+     * first ID of its block)
+     */
+    public static final String ID_SEQUENCE = "user_interactions_seq";
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+    @SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     @Column(nullable = false)
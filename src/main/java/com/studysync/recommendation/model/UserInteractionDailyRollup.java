@@ -0,0 +1,47 @@
+package com.studysync.recommendation.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Per-user daily interaction counts for days whose raw rows have been dropped
+ * from user_interactions
+ */
+@Entity
+@Table(name = "user_interaction_daily_rollups", indexes = {
+        @Index(name = "idx_user_rollup_user_id", columnList = "userId")
+}, uniqueConstraints = {
+        @UniqueConstraint(name = "uk_user_rollup_user_day_type", columnNames = { "userId", "activityDate", "interactionType" })
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserInteractionDailyRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private LocalDate activityDate;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private UserInteraction.InteractionType interactionType;
+
+    @Column(nullable = false)
+    private Long interactionCount;
+
+    @Column(nullable = false)
+    private LocalDateTime lastInteraction;
+}
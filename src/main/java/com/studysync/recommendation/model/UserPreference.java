@@ -13,6 +13,8 @@ import java.time.LocalDateTime;
 @Table(name = "user_preferences", indexes = {
         @Index(name = "idx_user_preference_user_id", columnList = "userId"),
         @Index(name = "idx_user_preference_category", columnList = "category")
+}, uniqueConstraints = {
+        @UniqueConstraint(name = "uk_user_preference_user_category", columnNames = { "userId", "category" })
 })
 @Data
 @Builder
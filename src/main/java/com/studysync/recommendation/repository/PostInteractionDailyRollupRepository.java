@@ -0,0 +1,20 @@
+package com.studysync.recommendation.repository;
+
+import com.studysync.recommendation.model.PostInteractionDailyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface PostInteractionDailyRollupRepository extends JpaRepository<PostInteractionDailyRollup, Long> {
+
+    /**
+     * Rolled-up totals per interaction type: [type, count]
+     */
+    @Query("SELECT r.interactionType, SUM(r.interactionCount) " +
+            "FROM PostInteractionDailyRollup r WHERE r.postId = :postId GROUP BY r.interactionType")
+    List<Object[]> summarizeByPost(@Param("postId") Long postId);
+}
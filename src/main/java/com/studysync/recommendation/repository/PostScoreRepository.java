@@ -3,9 +3,13 @@ package com.studysync.recommendation.repository;
 import com.studysync.recommendation.model.PostScore;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,24 +18,141 @@ public interface PostScoreRepository extends JpaRepository<PostScore, Long> {
 
     Optional<PostScore> findByPostId(Long postId);
 
-    @Query("SELECT ps FROM PostScore ps ORDER BY ps.totalScore DESC")
+    @Query("SELECT ps FROM PostScore ps ORDER BY ps.rankScore DESC")
     List<PostScore> findTopScoringPosts(Pageable pageable);
 
+    @Query("SELECT ps FROM PostScore ps WHERE ps.category = :category ORDER BY ps.rankScore DESC")
+    List<PostScore> findTopScoringPostsByCategory(@Param("category") String category, Pageable pageable);
+
+    /**
+     * Top posts created since the given time, by rank score
+     */
+    @Query("SELECT ps FROM PostScore ps WHERE ps.createdAt >= :since ORDER BY ps.rankScore DESC")
+    List<PostScore> findTopScoringPostsSince(@Param("since") LocalDateTime since, Pageable pageable);
+
+    @Query("SELECT ps FROM PostScore ps WHERE ps.category = :category AND ps.createdAt >= :since " +
+            "ORDER BY ps.rankScore DESC")
+    List<PostScore> findTopScoringPostsByCategorySince(@Param("category") String category,
+            @Param("since") LocalDateTime since, Pageable pageable);
+
+    /**
+     * Keyset page in ID order (for loading all scores without offset scans)
+     */
+    List<PostScore> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    List<PostScore> findByCategoryAndIdGreaterThanOrderByIdAsc(String category, Long id, Pageable pageable);
+
     @Query("SELECT ps FROM PostScore ps WHERE ps.postId IN :postIds")
     List<PostScore> findByPostIds(List<Long> postIds);
 
+    /**
+     * Keyset page of a category ranking: posts ranked after (score, postId),
+     * ordered by rank score descending then post ID
+     */
+    @Query("""
+            SELECT ps FROM PostScore ps
+            WHERE ps.category = :category
+              AND (ps.rankScore < :score OR (ps.rankScore = :score AND ps.postId > :postId))
+            ORDER BY ps.rankScore DESC, ps.postId ASC
+            """)
+    List<PostScore> findCategoryRankingAfter(@Param("category") String category, @Param("score") double score,
+            @Param("postId") long postId, Pageable pageable);
+
+    /**
+     * Keyset page of the global ranking, restricted to posts outside the given
+     * categories
+     */
+    @Query("""
+            SELECT ps FROM PostScore ps
+            WHERE (ps.category IS NULL OR ps.category NOT IN :excluded)
+              AND (ps.rankScore < :score OR (ps.rankScore = :score AND ps.postId > :postId))
+            ORDER BY ps.rankScore DESC, ps.postId ASC
+            """)
+    List<PostScore> findRankingAfterExcluding(@Param("excluded") Collection<String> excluded,
+            @Param("score") double score, @Param("postId") long postId, Pageable pageable);
+
+    @Query("""
+            SELECT ps FROM PostScore ps
+            WHERE ps.rankScore < :score OR (ps.rankScore = :score AND ps.postId > :postId)
+            ORDER BY ps.rankScore DESC, ps.postId ASC
+            """)
+    List<PostScore> findRankingAfter(@Param("score") double score, @Param("postId") long postId,
+            Pageable pageable);
+
     void deleteByPostId(Long postId);
 
     /**
-     * Find top N posts by total score (for global ranking)
+     * Atomically add engagement deltas to a post's counters and recompute its
+     * total and rank scores in the database. Creates the row if it does not
+     * exist yet. The rank score follows RankScoreCodec:
+     * ln(1 + total) + created epoch days x decayRate. Bumps the row version
+     * like an entity update would.
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO post_scores (post_id, total_score, rank_score, like_count, comment_count, share_count,
+                                     view_count, bookmark_count, created_at, last_updated, version)
+            SELECT :postId, s.total,
+                   LN(1 + GREATEST(s.total, 0)) + EXTRACT(EPOCH FROM LOCALTIMESTAMP) / 86400.0 * :decayRate,
+                   GREATEST(:likes, 0), :comments, :shares, :views, :bookmarks, LOCALTIMESTAMP, LOCALTIMESTAMP, 0
+            FROM (SELECT GREATEST(:likes, 0) * :likeWeight + :comments * :commentWeight + :shares * :shareWeight
+                         + :views * :viewWeight + :bookmarks * :bookmarkWeight AS total) s
+            ON CONFLICT (post_id) DO UPDATE SET
+                like_count = GREATEST(post_scores.like_count + :likes, 0),
+                comment_count = post_scores.comment_count + :comments,
+                share_count = post_scores.share_count + :shares,
+                view_count = post_scores.view_count + :views,
+                bookmark_count = post_scores.bookmark_count + :bookmarks,
+                total_score = GREATEST(post_scores.like_count + :likes, 0) * :likeWeight
+                    + (post_scores.comment_count + :comments) * :commentWeight
+                    + (post_scores.share_count + :shares) * :shareWeight
+                    + (post_scores.view_count + :views) * :viewWeight
+                    + (post_scores.bookmark_count + :bookmarks) * :bookmarkWeight,
+                rank_score = LN(1 + GREATEST(GREATEST(post_scores.like_count + :likes, 0) * :likeWeight
+                    + (post_scores.comment_count + :comments) * :commentWeight
+                    + (post_scores.share_count + :shares) * :shareWeight
+                    + (post_scores.view_count + :views) * :viewWeight
+                    + (post_scores.bookmark_count + :bookmarks) * :bookmarkWeight, 0))
+                    + EXTRACT(EPOCH FROM post_scores.created_at) / 86400.0 * :decayRate,
+                last_updated = LOCALTIMESTAMP,
+                version = post_scores.version + 1
+            """, nativeQuery = true)
+    int incrementScores(@Param("postId") Long postId,
+            @Param("likes") int likes,
+            @Param("comments") int comments,
+            @Param("shares") int shares,
+            @Param("views") int views,
+            @Param("bookmarks") int bookmarks,
+            @Param("likeWeight") double likeWeight,
+            @Param("commentWeight") double commentWeight,
+            @Param("shareWeight") double shareWeight,
+            @Param("viewWeight") double viewWeight,
+            @Param("bookmarkWeight") double bookmarkWeight,
+            @Param("decayRate") double decayRate);
+
+    /**
+     * Fill in rank scores of rows written before the column existed, or
+     * recompute every row (after a change of the decay factor)
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE post_scores
+            SET rank_score = LN(1 + GREATEST(total_score, 0)) + EXTRACT(EPOCH FROM created_at) / 86400.0 * :decayRate,
+                version = version + 1
+            WHERE rank_score IS NULL OR :all = TRUE
+            """, nativeQuery = true)
+    int encodeRankScores(@Param("decayRate") double decayRate, @Param("all") boolean all);
+
+    /**
+     * Find top N posts by rank score (for global ranking)
      */
-    @Query("SELECT ps.postId FROM PostScore ps ORDER BY ps.totalScore DESC LIMIT :limit")
-    List<Long> findTopByTotalScore(@org.springframework.data.repository.query.Param("limit") int limit);
+    @Query("SELECT ps.postId FROM PostScore ps ORDER BY ps.rankScore DESC LIMIT :limit")
+    List<Long> findTopByRankScore(@org.springframework.data.repository.query.Param("limit") int limit);
 
     /**
      * Find top N posts by category
      */
-    @Query("SELECT ps.postId FROM PostScore ps WHERE ps.category = :category ORDER BY ps.totalScore DESC LIMIT :limit")
+    @Query("SELECT ps.postId FROM PostScore ps WHERE ps.category = :category ORDER BY ps.rankScore DESC LIMIT :limit")
     List<Long> findTopByCategory(
             @org.springframework.data.repository.query.Param("category") String category,
             @org.springframework.data.repository.query.Param("limit") int limit);
@@ -39,7 +160,7 @@ public interface PostScoreRepository extends JpaRepository<PostScore, Long> {
     /**
      * Find top N posts by author
      */
-    @Query("SELECT ps.postId FROM PostScore ps WHERE ps.authorId = :authorId ORDER BY ps.totalScore DESC LIMIT :limit")
+    @Query("SELECT ps.postId FROM PostScore ps WHERE ps.authorId = :authorId ORDER BY ps.rankScore DESC LIMIT :limit")
     List<Long> findTopByAuthor(
             @org.springframework.data.repository.query.Param("authorId") Long authorId,
             @org.springframework.data.repository.query.Param("limit") int limit);
@@ -0,0 +1,20 @@
+package com.studysync.recommendation.repository;
+
+import com.studysync.recommendation.model.UserInteractionDailyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface UserInteractionDailyRollupRepository extends JpaRepository<UserInteractionDailyRollup, Long> {
+
+    /**
+     * Rolled-up totals per interaction type: [type, count, lastInteraction]
+     */
+    @Query("SELECT r.interactionType, SUM(r.interactionCount), MAX(r.lastInteraction) " +
+            "FROM UserInteractionDailyRollup r WHERE r.userId = :userId GROUP BY r.interactionType")
+    List<Object[]> summarizeByUser(@Param("userId") Long userId);
+}
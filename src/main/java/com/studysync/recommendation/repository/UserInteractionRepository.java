@@ -1,16 +1,23 @@
 package com.studysync.recommendation.repository;
 
 import com.studysync.recommendation.model.UserInteraction;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
+/**
+ * Raw interaction log. With partitioning enabled, rows older than the retention
+ * window live only in the daily rollup tables, so time-bounded queries here
+ * should pass a recent {@code since} to benefit from partition pruning.
+ */
 @Repository
-public interface UserInteractionRepository extends JpaRepository<UserInteraction, Long> {
+public interface UserInteractionRepository extends JpaRepository<UserInteraction, Long>, UserInteractionRepositoryCustom {
 
     List<UserInteraction> findByUserId(Long userId);
 
@@ -30,5 +37,39 @@ public interface UserInteractionRepository extends JpaRepository<UserInteraction
     List<Long> findInteractedPostIdsByUserAndTypes(@Param("userId") Long userId,
             @Param("types") List<UserInteraction.InteractionType> types);
 
+    /**
+     * (userId, postId) pairs for several users at once
+     */
+    @Query("SELECT DISTINCT ui.userId, ui.postId FROM UserInteraction ui WHERE ui.userId IN :userIds AND ui.interactionType IN :types")
+    List<Object[]> findInteractedPostIdsByUsersAndTypes(@Param("userIds") Collection<Long> userIds,
+            @Param("types") List<UserInteraction.InteractionType> types);
+
+    /**
+     * Users with an interaction since the given time, in ascending ID order
+     * starting after {@code afterUserId} (keyset pagination)
+     */
+    @Query("SELECT DISTINCT ui.userId FROM UserInteraction ui WHERE ui.timestamp >= :since " +
+            "AND ui.userId > :afterUserId ORDER BY ui.userId")
+    List<Long> findActiveUserIdsAfter(@Param("since") LocalDateTime since, @Param("afterUserId") Long afterUserId,
+            Pageable pageable);
+
+    /**
+     * Raw (not yet rolled up) totals per interaction type: [type, count, lastInteraction]
+     */
+    @Query("SELECT ui.interactionType, COUNT(ui), MAX(ui.timestamp) FROM UserInteraction ui " +
+            "WHERE ui.userId = :userId GROUP BY ui.interactionType")
+    List<Object[]> summarizeByUser(@Param("userId") Long userId);
+
+    /**
+     * Raw (not yet rolled up) totals per interaction type: [type, count]
+     */
+    @Query("SELECT ui.interactionType, COUNT(ui) FROM UserInteraction ui " +
+            "WHERE ui.postId = :postId GROUP BY ui.interactionType")
+    List<Object[]> summarizeByPost(@Param("postId") Long postId);
+
+    /**
+     * Raw rows only; add {@link PostInteractionDailyRollupRepository#summarizeByPost}
+     * for days that have been compacted
+     */
     Long countByPostIdAndInteractionType(Long postId, UserInteraction.InteractionType interactionType);
 }
@@ -0,0 +1,17 @@
+package com.studysync.recommendation.repository;
+
+import com.studysync.recommendation.model.UserInteraction;
+
+import java.util.List;
+
+/**
+ * Bulk append path for the interaction log, bypassing the persistence context
+ */
+public interface UserInteractionRepositoryCustom {
+
+    /**
+     * Insert interactions in bulk within the current transaction. IDs are
+     * assigned from the interaction sequence and set on the given objects.
+     */
+    List<UserInteraction> appendAll(List<UserInteraction> interactions);
+}
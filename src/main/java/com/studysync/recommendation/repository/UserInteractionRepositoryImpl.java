@@ -0,0 +1,227 @@
+package com.studysync.recommendation.repository;
+
+import com.studysync.recommendation.model.UserInteraction;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * JDBC implementation of {@link UserInteractionRepositoryCustom}.
+ *
+ * Rows are written with PostgreSQL COPY for larger batches and with multi-row
+ * INSERTs otherwise (and on other databases, e.g. H2 in tests). IDs are drawn
+ * from the same sequence Hibernate uses, a block at a time, so both paths can
+ * write to the table concurrently.
+ */
+@RequiredArgsConstructor
+@Slf4j
+public class UserInteractionRepositoryImpl implements UserInteractionRepositoryCustom {
+
+    private static final String TABLE = "user_interactions";
+    private static final String COLUMNS = "id, user_id, post_id, interaction_type, metadata, timestamp";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Schema updates (including the ID sequence) run when the factory starts
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Value("${app.interactions.bulk-insert.copy-threshold:20}")
+    private int copyThreshold;
+
+    @Value("${app.interactions.bulk-insert.insert-chunk-size:500}")
+    private int insertChunkSize;
+
+    // Guards the ID blocks; a lock rather than synchronized so virtual threads
+    // waiting on the JDBC calls below do not pin their carriers
+    private final ReentrantLock idLock = new ReentrantLock();
+
+    // Start IDs of allocated but unused blocks
+    private final Deque<Long> blocks = new ArrayDeque<>();
+    private long nextId;
+    private long blockEnd;
+    private volatile Boolean postgres;
+    private volatile boolean sequenceAligned;
+
+    @PostConstruct
+    public void init() {
+        try {
+            alignSequence();
+        } catch (Exception e) {
+            log.warn("Could not align {} at startup, retrying on first append: {}",
+                    UserInteraction.ID_SEQUENCE, e.getMessage());
+        }
+    }
+
+    @Override
+    public List<UserInteraction> appendAll(List<UserInteraction> interactions) {
+        if (interactions.isEmpty()) {
+            return interactions;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        for (UserInteraction interaction : interactions) {
+            if (interaction.getTimestamp() == null) {
+                interaction.setTimestamp(now);
+            }
+        }
+        assignIds(interactions);
+
+        if (isPostgres() && interactions.size() >= copyThreshold) {
+            copy(interactions);
+        } else {
+            insert(interactions);
+        }
+
+        log.debug("Appended {} interactions", interactions.size());
+        return interactions;
+    }
+
+    private void copy(List<UserInteraction> interactions) {
+        StringBuilder csv = new StringBuilder(interactions.size() * 64);
+        for (UserInteraction interaction : interactions) {
+            csv.append(interaction.getId()).append(',')
+                    .append(interaction.getUserId()).append(',')
+                    .append(interaction.getPostId()).append(',')
+                    .append(interaction.getInteractionType().name()).append(',');
+            if (interaction.getMetadata() != null) {
+                // Always quoted so an empty string is not read as NULL
+                csv.append('"').append(interaction.getMetadata().replace("\"", "\"\"")).append('"');
+            }
+            // Written as is, like the JDBC driver binds a LocalDateTime; no JVM time zone conversion
+            csv.append(',').append(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(interaction.getTimestamp()))
+                    .append('\n');
+        }
+
+        byte[] payload = csv.toString().getBytes(StandardCharsets.UTF_8);
+        String sql = "COPY " + TABLE + " (" + COLUMNS + ") FROM STDIN WITH (FORMAT csv)";
+        jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try {
+                return connection.unwrap(PGConnection.class).getCopyAPI()
+                        .copyIn(sql, new ByteArrayInputStream(payload));
+            } catch (IOException e) {
+                throw new SQLException("COPY into " + TABLE + " failed", e);
+            }
+        });
+    }
+
+    private void insert(List<UserInteraction> interactions) {
+        for (int from = 0; from < interactions.size(); from += insertChunkSize) {
+            List<UserInteraction> chunk = interactions.subList(from,
+                    Math.min(from + insertChunkSize, interactions.size()));
+
+            StringBuilder sql = new StringBuilder("INSERT INTO ").append(TABLE)
+                    .append(" (").append(COLUMNS).append(") VALUES ");
+            List<Object> args = new ArrayList<>(chunk.size() * 6);
+            for (int i = 0; i < chunk.size(); i++) {
+                UserInteraction interaction = chunk.get(i);
+                sql.append(i == 0 ? "(?, ?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?, ?)");
+                args.add(interaction.getId());
+                args.add(interaction.getUserId());
+                args.add(interaction.getPostId());
+                args.add(interaction.getInteractionType().name());
+                args.add(interaction.getMetadata());
+                args.add(interaction.getTimestamp());
+            }
+            jdbcTemplate.update(sql.toString(), args.toArray());
+        }
+    }
+
+    /**
+     * Assign IDs from pooled sequence blocks, fetching every missing block in
+     * one round trip
+     */
+    private void assignIds(List<UserInteraction> interactions) {
+        idLock.lock();
+        try {
+            alignSequence();
+
+            long available = blockEnd - nextId + (long) blocks.size() * UserInteraction.ID_ALLOCATION_SIZE;
+            if (available < interactions.size()) {
+                long missing = interactions.size() - available;
+                int count = (int) ((missing + UserInteraction.ID_ALLOCATION_SIZE - 1)
+                        / UserInteraction.ID_ALLOCATION_SIZE);
+                blocks.addAll(fetchBlocks(count));
+            }
+
+            for (UserInteraction interaction : interactions) {
+                if (nextId == blockEnd) {
+                    nextId = blocks.removeFirst();
+                    blockEnd = nextId + UserInteraction.ID_ALLOCATION_SIZE;
+                }
+                interaction.setId(nextId++);
+            }
+        } finally {
+            idLock.unlock();
+        }
+    }
+
+    private List<Long> fetchBlocks(int count) {
+        if (isPostgres()) {
+            return jdbcTemplate.queryForList(
+                    "SELECT nextval('" + UserInteraction.ID_SEQUENCE + "') FROM generate_series(1, ?)",
+                    Long.class, count);
+        }
+        List<Long> starts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            starts.add(jdbcTemplate.queryForObject(
+                    "SELECT NEXT VALUE FOR " + UserInteraction.ID_SEQUENCE, Long.class));
+        }
+        return starts;
+    }
+
+    /**
+     * Move the sequence past IDs written before the table switched from an
+     * identity column (PostgreSQL only; runs once per instance)
+     */
+    private void alignSequence() {
+        if (sequenceAligned) {
+            return;
+        }
+        idLock.lock();
+        try {
+            if (sequenceAligned) {
+                return;
+            }
+            if (isPostgres()) {
+                List<Long> moved = jdbcTemplate.queryForList("""
+                        SELECT setval('%1$s', m.max_id + 1, false)
+                        FROM (SELECT COALESCE(MAX(id), 0) AS max_id FROM %2$s) m, %1$s s
+                        WHERE m.max_id >= CASE WHEN s.is_called THEN s.last_value + %3$d ELSE s.last_value END
+                        """.formatted(UserInteraction.ID_SEQUENCE, TABLE, UserInteraction.ID_ALLOCATION_SIZE),
+                        Long.class);
+                if (!moved.isEmpty()) {
+                    log.info("Moved {} to {} past existing interaction IDs", UserInteraction.ID_SEQUENCE,
+                            moved.get(0));
+                }
+            }
+            sequenceAligned = true;
+        } finally {
+            idLock.unlock();
+        }
+    }
+
+    private boolean isPostgres() {
+        if (postgres == null) {
+            postgres = Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                    "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName())));
+        }
+        return postgres;
+    }
+}
@@ -2,10 +2,12 @@ package com.studysync.recommendation.repository;
 
 import com.studysync.recommendation.model.UserPreference;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,5 +21,28 @@ public interface UserPreferenceRepository extends JpaRepository<UserPreference,
     @Query("SELECT up FROM UserPreference up WHERE up.userId = :userId ORDER BY up.preferenceScore DESC")
     List<UserPreference> findTopPreferencesByUser(@Param("userId") Long userId);
 
+    @Query("SELECT up FROM UserPreference up WHERE up.userId IN :userIds ORDER BY up.userId, up.preferenceScore DESC")
+    List<UserPreference> findTopPreferencesByUsers(@Param("userIds") Collection<Long> userIds);
+
     void deleteByUserId(Long userId);
+
+    /**
+     * Atomically add to a user's category preference (score capped at 1.0),
+     * creating the row if it does not exist yet. Relies on the unique
+     * constraint ensured by PreferenceConstraintMigration.
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO user_preferences (user_id, category, preference_score, interaction_count,
+                                          created_at, last_updated)
+            VALUES (:userId, :category, LEAST(1.0, :increment), :count, LOCALTIMESTAMP, LOCALTIMESTAMP)
+            ON CONFLICT (user_id, category) DO UPDATE SET
+                preference_score = LEAST(1.0, user_preferences.preference_score + :increment),
+                interaction_count = user_preferences.interaction_count + :count,
+                last_updated = LOCALTIMESTAMP
+            """, nativeQuery = true)
+    int incrementPreference(@Param("userId") Long userId,
+            @Param("category") String category,
+            @Param("increment") double increment,
+            @Param("count") int count);
 }
@@ -0,0 +1,186 @@
+package com.studysync.recommendation.service;
+
+import com.studysync.recommendation.model.UserPreference;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Builds recommendation candidates from the user's preferred categories.
+ *
+ * Reads the top K of each of the user's top categories plus the global
+ * ranking, then does a bounded k-way merge. Scores are normalized per ranking
+ * (divided by its best score) and weighted by the user's preference for that
+ * category, so a niche category competes on relevance rather than raw
+ * popularity. Work per request is O(categories x K), independent of catalog
+ * size.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CandidateGenerator {
+
+    private final PostScoreService postScoreService;
+
+    @Value("${app.recommendation.candidates.max-categories:5}")
+    private int maxCategories;
+
+    @Value("${app.recommendation.candidates.per-category:40}")
+    private int perCategory;
+
+    @Value("${app.recommendation.candidates.global-weight:0.2}")
+    private double globalWeight;
+
+    /**
+     * A merged candidate; category is null when it came from the global ranking
+     */
+    public record Candidate(long postId, double rankingScore, String category, double mergeScore) {
+    }
+
+    /**
+     * Up to {@code limit} unseen candidates, best first
+     *
+     * @param preferences the user's preferences, highest score first
+     */
+    public List<Candidate> generate(List<UserPreference> preferences, Roaring64NavigableMap seen, int limit) {
+        List<String> categories = new ArrayList<>();
+        List<Double> weights = new ArrayList<>();
+        selectSources(preferences, categories, weights);
+
+        List<List<PostScoreService.RankedPost>> rankings = postScoreService.getRankings(categories,
+                rankingDepth(limit));
+        return merge(categories, weights, rankings, seen, limit);
+    }
+
+    /**
+     * Read, once, every ranking that any of the given users draws candidates
+     * from; the global ranking is under the null key
+     */
+    public Map<String, List<PostScoreService.RankedPost>> fetchRankings(
+            Collection<List<UserPreference>> preferencesByUser, int limit) {
+        Set<String> distinct = new LinkedHashSet<>();
+        for (List<UserPreference> preferences : preferencesByUser) {
+            List<String> categories = new ArrayList<>();
+            selectSources(preferences, categories, new ArrayList<>());
+            distinct.addAll(categories);
+        }
+        distinct.add(null);
+
+        List<String> categories = new ArrayList<>(distinct);
+        List<List<PostScoreService.RankedPost>> rankings = postScoreService.getRankings(categories,
+                rankingDepth(limit));
+        Map<String, List<PostScoreService.RankedPost>> byCategory = new HashMap<>(categories.size() * 2);
+        for (int i = 0; i < categories.size(); i++) {
+            byCategory.put(categories.get(i), rankings.get(i));
+        }
+        return byCategory;
+    }
+
+    /**
+     * Same as {@link #generate(List, Roaring64NavigableMap, int)}, using
+     * rankings prefetched with {@link #fetchRankings}
+     */
+    public List<Candidate> generate(List<UserPreference> preferences, Roaring64NavigableMap seen, int limit,
+            Map<String, List<PostScoreService.RankedPost>> prefetched) {
+        List<String> categories = new ArrayList<>();
+        List<Double> weights = new ArrayList<>();
+        selectSources(preferences, categories, weights);
+
+        List<List<PostScoreService.RankedPost>> rankings = new ArrayList<>(categories.size());
+        for (String category : categories) {
+            rankings.add(prefetched.getOrDefault(category, List.of()));
+        }
+        return merge(categories, weights, rankings, seen, limit);
+    }
+
+    /**
+     * The user's top categories with their weights, then the global ranking
+     * (null) so popular posts fill gaps for users with few preferences
+     */
+    private void selectSources(List<UserPreference> preferences, List<String> categories, List<Double> weights) {
+        for (UserPreference preference : preferences) {
+            if (categories.size() == maxCategories) {
+                break;
+            }
+            if (preference.getPreferenceScore() != null && preference.getPreferenceScore() > 0) {
+                categories.add(preference.getCategory());
+                weights.add(preference.getPreferenceScore());
+            }
+        }
+        categories.add(null);
+        weights.add(globalWeight);
+    }
+
+    private int rankingDepth(int limit) {
+        return Math.max(perCategory, limit);
+    }
+
+    private List<Candidate> merge(List<String> categories, List<Double> weights,
+            List<List<PostScoreService.RankedPost>> rankings, Roaring64NavigableMap seen, int limit) {
+        PriorityQueue<Cursor> heads = new PriorityQueue<>(Comparator.comparingDouble(Cursor::headScore).reversed());
+        for (int i = 0; i < rankings.size(); i++) {
+            List<PostScoreService.RankedPost> ranking = rankings.get(i);
+            if (!ranking.isEmpty()) {
+                double best = ranking.get(0).score();
+                heads.add(new Cursor(ranking, categories.get(i), weights.get(i) / (best > 0 ? best : 1.0)));
+            }
+        }
+
+        List<Candidate> candidates = new ArrayList<>(limit);
+        Set<Long> emitted = new HashSet<>();
+        while (candidates.size() < limit && !heads.isEmpty()) {
+            Cursor cursor = heads.poll();
+            PostScoreService.RankedPost post = cursor.head();
+            if (!seen.contains(post.postId()) && emitted.add(post.postId())) {
+                candidates.add(new Candidate(post.postId(), post.score(), cursor.category, cursor.headScore()));
+            }
+            if (cursor.advance()) {
+                heads.add(cursor);
+            }
+        }
+
+        log.debug("Generated {} candidates from {} rankings", candidates.size(), rankings.size());
+        return candidates;
+    }
+
+    /**
+     * Position in one ranking; scores within a ranking are non-increasing
+     */
+    private static final class Cursor {
+        private final List<PostScoreService.RankedPost> ranking;
+        private final String category;
+        private final double scale;
+        private int position;
+
+        Cursor(List<PostScoreService.RankedPost> ranking, String category, double scale) {
+            this.ranking = ranking;
+            this.category = category;
+            this.scale = scale;
+        }
+
+        PostScoreService.RankedPost head() {
+            return ranking.get(position);
+        }
+
+        double headScore() {
+            return ranking.get(position).score() * scale;
+        }
+
+        boolean advance() {
+            return ++position < ranking.size();
+        }
+    }
+}
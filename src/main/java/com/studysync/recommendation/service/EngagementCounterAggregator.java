@@ -0,0 +1,227 @@
+package com.studysync.recommendation.service;
+
+import com.studysync.recommendation.model.UserInteraction;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind aggregator for post engagement counters.
+ *
+ * Interactions are folded into per-post striped counters ({@link LongAdder})
+ * instead of hitting the post_scores row on every event. Buffers are flushed
+ * as one bulk write on a fixed interval, when the number of buffered events
+ * crosses a threshold, and on shutdown.
+ *
+ * Deltas are buffered only once the caller's transaction commits, so a batch
+ * that rolls back and is redelivered is counted once. Writers add to a post's
+ * counters inside {@code compute} on its map entry, and idle counters are
+ * removed the same way only while empty, so no delta lands in counters that
+ * have already left the map.
+ *
+ * Trade-off: deltas buffered in memory are lost if the process dies without a
+ * graceful shutdown, so this is opt-in.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class EngagementCounterAggregator {
+
+    private final PostScoreService postScoreService;
+
+    @Value("${app.engagement.write-behind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.engagement.write-behind.flush-threshold:5000}")
+    private long flushThreshold;
+
+    private final ConcurrentHashMap<Long, PendingCounters> pending = new ConcurrentHashMap<>();
+    private final LongAdder bufferedEvents = new LongAdder();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean thresholdFlushScheduled = new AtomicBoolean();
+    private final ExecutorService flushExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "engagement-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Buffer a single interaction once the current transaction (if any) commits
+     */
+    public void record(Long postId, UserInteraction.InteractionType type) {
+        record(Map.of(postId, EngagementDelta.of(type)));
+    }
+
+    /**
+     * Buffer coalesced deltas for several posts once the current transaction
+     * (if any) commits
+     */
+    public void record(Map<Long, EngagementDelta> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    deltas.forEach(EngagementCounterAggregator.this::buffer);
+                }
+            });
+        } else {
+            deltas.forEach(this::buffer);
+        }
+    }
+
+    private void buffer(Long postId, EngagementDelta delta) {
+        if (delta.isEmpty()) {
+            return;
+        }
+
+        add(postId, delta);
+        bufferedEvents.increment();
+
+        if (bufferedEvents.sum() >= flushThreshold && thresholdFlushScheduled.compareAndSet(false, true)) {
+            flushExecutor.execute(() -> {
+                try {
+                    flush();
+                } finally {
+                    thresholdFlushScheduled.set(false);
+                }
+            });
+        }
+    }
+
+    private void add(Long postId, EngagementDelta delta) {
+        pending.compute(postId, (id, counters) -> {
+            PendingCounters target = counters != null ? counters : new PendingCounters(id);
+            target.add(delta);
+            return target;
+        });
+    }
+
+    /**
+     * Delta buffered for a post that has not reached the database yet
+     */
+    public EngagementDelta getPendingDelta(Long postId) {
+        PendingCounters counters = pending.get(postId);
+        return counters != null ? counters.snapshot() : new EngagementDelta();
+    }
+
+    /**
+     * Flush buffered deltas to post_scores
+     */
+    @Scheduled(fixedDelayString = "${app.engagement.write-behind.flush-interval-ms:1000}")
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+
+        flushLock.lock();
+        try {
+            bufferedEvents.reset();
+            Map<Long, EngagementDelta> batch = new HashMap<>();
+
+            for (PendingCounters counters : pending.values()) {
+                if (counters.drainInto(batch)) {
+                    counters.idleFlushes = 0;
+                } else if (++counters.idleFlushes >= 2) {
+                    // Writers add under the same entry lock, so an empty entry stays empty while removed
+                    pending.computeIfPresent(counters.postId,
+                            (postId, current) -> current == counters && current.isEmpty() ? null : current);
+                }
+            }
+
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            try {
+                postScoreService.applyEngagementDeltas(batch);
+                log.debug("Flushed engagement deltas for {} posts", batch.size());
+            } catch (Exception e) {
+                log.error("Failed to flush engagement deltas for {} posts, re-buffering", batch.size(), e);
+                batch.forEach(this::add);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushExecutor.shutdown();
+        try {
+            flushExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        log.info("Draining engagement buffers for {} posts before shutdown", pending.size());
+        flush();
+    }
+
+    private static class PendingCounters {
+        private final Long postId;
+        private final LongAdder likes = new LongAdder();
+        private final LongAdder comments = new LongAdder();
+        private final LongAdder shares = new LongAdder();
+        private final LongAdder views = new LongAdder();
+        private final LongAdder bookmarks = new LongAdder();
+
+        // Only touched by the flushing thread
+        private int idleFlushes;
+
+        PendingCounters(Long postId) {
+            this.postId = postId;
+        }
+
+        void add(EngagementDelta delta) {
+            likes.add(delta.getLikes());
+            comments.add(delta.getComments());
+            shares.add(delta.getShares());
+            views.add(delta.getViews());
+            bookmarks.add(delta.getBookmarks());
+        }
+
+        boolean isEmpty() {
+            return likes.sum() == 0 && comments.sum() == 0 && shares.sum() == 0 && views.sum() == 0
+                    && bookmarks.sum() == 0;
+        }
+
+        EngagementDelta snapshot() {
+            return EngagementDelta.of(likes.sum(), comments.sum(), shares.sum(), views.sum(), bookmarks.sum());
+        }
+
+        /**
+         * Move the current counts into the batch; returns false if nothing was pending
+         */
+        boolean drainInto(Map<Long, EngagementDelta> batch) {
+            EngagementDelta delta = EngagementDelta.of(likes.sumThenReset(), comments.sumThenReset(),
+                    shares.sumThenReset(), views.sumThenReset(), bookmarks.sumThenReset());
+            if (delta.isEmpty()) {
+                return false;
+            }
+            batch.merge(postId, delta, EngagementDelta::merge);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.studysync.recommendation.service;
+
+import com.studysync.recommendation.model.UserInteraction;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Accumulated engagement counter changes for a single post.
+ *
+ * Lets callers coalesce any number of interactions on the same post into a
+ * single {@code PostScore} write.
+ */
+@Getter
+@ToString
+public class EngagementDelta {
+
+    private int likes;
+    private int comments;
+    private int shares;
+    private int views;
+    private int bookmarks;
+
+    public static EngagementDelta of(UserInteraction.InteractionType type) {
+        EngagementDelta delta = new EngagementDelta();
+        delta.add(type);
+        return delta;
+    }
+
+    public static EngagementDelta of(long likes, long comments, long shares, long views, long bookmarks) {
+        EngagementDelta delta = new EngagementDelta();
+        delta.likes = Math.toIntExact(likes);
+        delta.comments = Math.toIntExact(comments);
+        delta.shares = Math.toIntExact(shares);
+        delta.views = Math.toIntExact(views);
+        delta.bookmarks = Math.toIntExact(bookmarks);
+        return delta;
+    }
+
+    /**
+     * Record one interaction of the given type
+     */
+    public EngagementDelta add(UserInteraction.InteractionType type) {
+        switch (type) {
+            case LIKE -> likes++;
+            case UNLIKE -> likes--;
+            case COMMENT -> comments++;
+            case SHARE -> shares++;
+            case VIEW -> views++;
+            case BOOKMARK -> bookmarks++;
+            default -> {
+                // CLICK and other types don't affect engagement counters
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Fold another delta into this one
+     */
+    public EngagementDelta merge(EngagementDelta other) {
+        likes += other.likes;
+        comments += other.comments;
+        shares += other.shares;
+        views += other.views;
+        bookmarks += other.bookmarks;
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return likes == 0 && comments == 0 && shares == 0 && views == 0 && bookmarks == 0;
+    }
+}
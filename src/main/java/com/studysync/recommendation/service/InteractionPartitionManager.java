@@ -0,0 +1,294 @@
+package com.studysync.recommendation.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Daily range partitioning and retention for user_interactions (PostgreSQL).
+ *
+ * - On startup a plain table is converted in place: the existing table becomes
+ *   the first partition (up to tomorrow) and new rows go to daily partitions
+ * - Partitions are created a few days ahead; a default partition catches
+ *   anything outside the prepared range, and its rows move into a day's
+ *   partition when that partition is created
+ * - Partitions older than the retention window are rolled up into per-user
+ *   and per-post daily aggregates and dropped in the same transaction, so every
+ *   interaction is counted either raw or in an aggregate, never both
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InteractionPartitionManager {
+
+    private static final String TABLE = "user_interactions";
+    private static final String LEGACY_TABLE = TABLE + "_legacy";
+    private static final String DEFAULT_PARTITION = TABLE + "_default";
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final Pattern LOWER_BOUND = Pattern.compile("FROM \\('([^']+)'\\)");
+    private static final Pattern UPPER_BOUND = Pattern.compile("TO \\('([^']+)'\\)");
+    private static final List<String> INDEXES = List.of("idx_user_id", "idx_post_id", "idx_interaction_type",
+            "idx_timestamp");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    // Schema updates (rollup tables) run when the factory starts
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Value("${app.interactions.partitioning.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.interactions.partitioning.premake-days:3}")
+    private int premakeDays;
+
+    @Value("${app.interactions.partitioning.retention-days:90}")
+    private int retentionDays;
+
+    private volatile boolean active;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        if (!isPostgres()) {
+            log.warn("Interaction partitioning requires PostgreSQL, leaving {} unpartitioned", TABLE);
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> convertToPartitioned());
+            active = true;
+            maintainPartitions();
+        } catch (Exception e) {
+            log.error("Failed to set up partitioning for {}", TABLE, e);
+        }
+    }
+
+    /**
+     * Keep future partitions ready
+     */
+    @Scheduled(cron = "${app.interactions.partitioning.maintenance-cron:0 5 * * * *}")
+    public void maintainPartitions() {
+        if (!active) {
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i <= premakeDays; i++) {
+            createPartition(today.plusDays(i));
+        }
+    }
+
+    /**
+     * Roll up and drop partitions that have aged past the retention window
+     */
+    @Scheduled(cron = "${app.interactions.partitioning.compaction-cron:0 30 3 * * *}")
+    public void compact() {
+        if (!active) {
+            return;
+        }
+        LocalDateTime cutoff = LocalDate.now().minusDays(retentionDays).atStartOfDay();
+
+        for (String[] partition : partitions()) {
+            Matcher matcher = UPPER_BOUND.matcher(partition[1]);
+            if (!matcher.find()) {
+                continue; // default partition or unbounded
+            }
+            LocalDateTime upper = parseBound(matcher.group(1));
+            if (!upper.isAfter(cutoff)) {
+                try {
+                    compactPartition(partition[0]);
+                } catch (Exception e) {
+                    log.error("Failed to compact interaction partition {}", partition[0], e);
+                }
+            }
+        }
+    }
+
+    private void compactPartition(String partition) {
+        transactionTemplate.executeWithoutResult(status -> {
+            int users = jdbcTemplate.update("""
+                    INSERT INTO user_interaction_daily_rollups
+                        (user_id, activity_date, interaction_type, interaction_count, last_interaction)
+                    SELECT user_id, CAST(timestamp AS date), interaction_type, COUNT(*), MAX(timestamp)
+                    FROM %s
+                    GROUP BY user_id, CAST(timestamp AS date), interaction_type
+                    ON CONFLICT (user_id, activity_date, interaction_type) DO UPDATE SET
+                        interaction_count = user_interaction_daily_rollups.interaction_count
+                            + EXCLUDED.interaction_count,
+                        last_interaction = GREATEST(user_interaction_daily_rollups.last_interaction,
+                            EXCLUDED.last_interaction)
+                    """.formatted(partition));
+
+            int posts = jdbcTemplate.update("""
+                    INSERT INTO post_interaction_daily_rollups (post_id, activity_date, interaction_type, interaction_count)
+                    SELECT post_id, CAST(timestamp AS date), interaction_type, COUNT(*)
+                    FROM %s
+                    GROUP BY post_id, CAST(timestamp AS date), interaction_type
+                    ON CONFLICT (post_id, activity_date, interaction_type) DO UPDATE SET
+                        interaction_count = post_interaction_daily_rollups.interaction_count
+                            + EXCLUDED.interaction_count
+                    """.formatted(partition));
+
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " DETACH PARTITION " + partition);
+            jdbcTemplate.execute("DROP TABLE " + partition);
+            log.info("Compacted interaction partition {} into {} user and {} post rollups", partition, users, posts);
+        });
+    }
+
+    /**
+     * Create the partition for a day. Rows of that day that already landed in
+     * the default partition are moved into the new table before it is
+     * attached; otherwise the attach would fail on them.
+     */
+    private void createPartition(LocalDate day) {
+        String name = TABLE + "_p" + day.format(SUFFIX);
+        LocalDateTime from = day.atStartOfDay();
+        LocalDateTime to = day.plusDays(1).atStartOfDay();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                lockSchema();
+                if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                        "SELECT to_regclass(?) IS NOT NULL", Boolean.class, name)) || overlapsPartition(from, to)) {
+                    // Already there, or covered by the legacy partition on the conversion day
+                    return;
+                }
+
+                // Keeps rows of the day from arriving in the default partition meanwhile
+                jdbcTemplate.execute("LOCK TABLE " + DEFAULT_PARTITION + " IN ACCESS EXCLUSIVE MODE");
+                jdbcTemplate.execute("CREATE TABLE %s (LIKE %s INCLUDING DEFAULTS INCLUDING CONSTRAINTS)"
+                        .formatted(name, TABLE));
+                int moved = jdbcTemplate.update("""
+                        WITH moved AS (
+                            DELETE FROM %s WHERE timestamp >= '%s' AND timestamp < '%s' RETURNING *
+                        )
+                        INSERT INTO %s SELECT * FROM moved
+                        """.formatted(DEFAULT_PARTITION, from, to, name));
+                jdbcTemplate.execute("ALTER TABLE %s ATTACH PARTITION %s FOR VALUES FROM ('%s') TO ('%s')"
+                        .formatted(TABLE, name, from, to));
+                if (moved > 0) {
+                    log.info("Moved {} interactions from {} into new partition {}", moved, DEFAULT_PARTITION, name);
+                }
+            });
+        } catch (Exception e) {
+            log.warn("Failed to create interaction partition {}, rows for {} go to {}: {}",
+                    name, day, DEFAULT_PARTITION, e.getMessage());
+        }
+    }
+
+    /**
+     * True if an existing range partition covers part of [from, to)
+     */
+    private boolean overlapsPartition(LocalDateTime from, LocalDateTime to) {
+        for (String[] partition : partitions()) {
+            Matcher upper = UPPER_BOUND.matcher(partition[1]);
+            if (!upper.find()) {
+                continue; // default partition or unbounded
+            }
+            Matcher lower = LOWER_BOUND.matcher(partition[1]);
+            // No quoted lower bound: FROM (MINVALUE)
+            if ((!lower.find() || parseBound(lower.group(1)).isBefore(to))
+                    && parseBound(upper.group(1)).isAfter(from)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Name and bound expression of every partition
+     */
+    private List<String[]> partitions() {
+        return jdbcTemplate.query("""
+                SELECT c.relname, pg_get_expr(c.relpartbound, c.oid)
+                FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = '%s'::regclass
+                ORDER BY c.relname
+                """.formatted(TABLE),
+                (rs, rowNum) -> new String[] { rs.getString(1), rs.getString(2) });
+    }
+
+    private static LocalDateTime parseBound(String bound) {
+        return LocalDateTime.parse(bound.replace(' ', 'T'));
+    }
+
+    /**
+     * Swap a plain user_interactions table for a partitioned one, keeping the
+     * existing rows as its first partition
+     */
+    private void convertToPartitioned() {
+        // Nodes starting together take turns; the check only counts under the lock
+        lockSchema();
+        Boolean partitioned = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass(?))",
+                Boolean.class, TABLE);
+        if (Boolean.TRUE.equals(partitioned)) {
+            return;
+        }
+
+        log.info("Converting {} to a partitioned table", TABLE);
+        jdbcTemplate.execute("LOCK TABLE " + TABLE + " IN ACCESS EXCLUSIVE MODE");
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " RENAME TO " + LEGACY_TABLE);
+        jdbcTemplate.execute("ALTER TABLE " + LEGACY_TABLE + " RENAME CONSTRAINT " + TABLE + "_pkey TO "
+                + LEGACY_TABLE + "_pkey");
+        jdbcTemplate.execute("ALTER TABLE " + LEGACY_TABLE + " ALTER COLUMN id DROP IDENTITY IF EXISTS");
+        for (String index : INDEXES) {
+            jdbcTemplate.execute("ALTER INDEX IF EXISTS " + index + " RENAME TO " + index + "_legacy");
+        }
+
+        // The partition key has to be part of the primary key
+        jdbcTemplate.execute("""
+                CREATE TABLE %s (
+                    id BIGINT NOT NULL,
+                    user_id BIGINT NOT NULL,
+                    post_id BIGINT NOT NULL,
+                    interaction_type VARCHAR(255) NOT NULL,
+                    metadata TEXT,
+                    timestamp TIMESTAMP(6) NOT NULL,
+                    PRIMARY KEY (id, timestamp)
+                ) PARTITION BY RANGE (timestamp)
+                """.formatted(TABLE));
+        jdbcTemplate.execute("CREATE INDEX idx_user_id ON " + TABLE + " (user_id, timestamp)");
+        jdbcTemplate.execute("CREATE INDEX idx_post_id ON " + TABLE + " (post_id, timestamp)");
+        jdbcTemplate.execute("CREATE INDEX idx_interaction_type ON " + TABLE + " (interaction_type)");
+        jdbcTemplate.execute("CREATE INDEX idx_timestamp ON " + TABLE + " (timestamp)");
+        jdbcTemplate.execute("CREATE TABLE " + DEFAULT_PARTITION + " PARTITION OF " + TABLE + " DEFAULT");
+
+        Boolean hasRows = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM " + LEGACY_TABLE + ")", Boolean.class);
+        if (Boolean.TRUE.equals(hasRows)) {
+            LocalDateTime upper = LocalDate.now().plusDays(1).atStartOfDay();
+            jdbcTemplate.execute("ALTER TABLE %s ATTACH PARTITION %s FOR VALUES FROM (MINVALUE) TO ('%s')"
+                    .formatted(TABLE, LEGACY_TABLE, upper));
+            log.info("Attached existing interactions as partition {} (up to {})", LEGACY_TABLE, upper);
+        } else {
+            jdbcTemplate.execute("DROP TABLE " + LEGACY_TABLE);
+        }
+    }
+
+    /**
+     * Serialize partition DDL across nodes until the transaction ends
+     */
+    private void lockSchema() {
+        jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(hashtext(?))", TABLE + ":partitions");
+    }
+
+    private boolean isPostgres() {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName())));
+    }
+}
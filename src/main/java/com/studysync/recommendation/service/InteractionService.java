@@ -4,21 +4,23 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.studysync.recommendation.dto.UserInteractionEvent;
 import com.studysync.recommendation.kafka.EventProducer;
-import com.studysync.recommendation.model.PostScore;
 import com.studysync.recommendation.model.UserInteraction;
-import com.studysync.recommendation.model.UserPreference;
-import com.studysync.recommendation.repository.PostScoreRepository;
 import com.studysync.recommendation.repository.UserInteractionRepository;
 import com.studysync.recommendation.repository.UserPreferenceRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 
 @Service
 @RequiredArgsConstructor
@@ -26,22 +28,13 @@ import java.util.Map;
 public class InteractionService {
 
     private final UserInteractionRepository interactionRepository;
-    private final PostScoreRepository postScoreRepository;
+    private final PostScoreService postScoreService;
+    private final EngagementCounterAggregator engagementAggregator;
     private final UserPreferenceRepository userPreferenceRepository;
+    private final SeenPostsService seenPostsService;
     private final EventProducer eventProducer;
     private final ObjectMapper objectMapper;
-
-    @Value("${app.recommendation.like-weight}")
-    private Double likeWeight;
-
-    @Value("${app.recommendation.comment-weight}")
-    private Double commentWeight;
-
-    @Value("${app.recommendation.share-weight}")
-    private Double shareWeight;
-
-    @Value("${app.recommendation.view-weight}")
-    private Double viewWeight;
+    private final RecommendationCache recommendationCache;
 
     @Transactional
     public UserInteraction createInteraction(Long userId, Long postId,
@@ -66,6 +59,12 @@ public class InteractionService {
             updateUserPreference(userId, category, type);
         }
 
+        if (SeenPostsService.SEEN_TYPES.contains(type)) {
+            seenPostsService.markSeen(Map.of(userId, List.of(postId)));
+        }
+
+        evictRecommendations(List.of(userId));
+
         // Publish event to Kafka
         publishInteractionEvent(interaction, category);
 
@@ -74,30 +73,80 @@ public class InteractionService {
 
     @Transactional
     public void processInteractionEvent(UserInteractionEvent event) {
+        processInteractionEvents(List.of(event));
+    }
+
+    /**
+     * Process a batch of interaction events in a single transaction.
+     *
+     * Interactions are appended in bulk (COPY / multi-row INSERT), and all deltas
+     * for the same post and the same (user, category) pair are merged first so
+     * each PostScore and UserPreference row is written once per batch.
+     */
+    @Transactional
+    public void processInteractionEvents(List<UserInteractionEvent> events) {
+        List<UserInteraction> interactions = new ArrayList<>(events.size());
+        // Sorted, so concurrent batches lock shared rows in the same order and cannot deadlock
+        Map<Long, EngagementDelta> postDeltas = new TreeMap<>();
+        Map<PreferenceKey, PreferenceDelta> preferenceDeltas = new TreeMap<>(PreferenceKey.ORDER);
+        Map<Long, Set<Long>> seenPosts = new HashMap<>();
+        Set<Long> userIds = new HashSet<>();
+
+        for (UserInteractionEvent event : events) {
+            interactions.add(toInteraction(event));
+            userIds.add(event.getUserId());
+
+            if (SeenPostsService.SEEN_TYPES.contains(event.getInteractionType())) {
+                seenPosts.computeIfAbsent(event.getUserId(), id -> new HashSet<>()).add(event.getPostId());
+            }
+
+            postDeltas.computeIfAbsent(event.getPostId(), id -> new EngagementDelta())
+                    .add(event.getInteractionType());
+
+            // Update user preferences if category is in metadata
+            if (event.getMetadata() != null && event.getMetadata().containsKey("category")) {
+                String category = event.getMetadata().get("category").toString();
+                preferenceDeltas.computeIfAbsent(new PreferenceKey(event.getUserId(), category),
+                        key -> new PreferenceDelta())
+                        .add(getPreferenceIncrement(event.getInteractionType()));
+            }
+        }
+
+        interactionRepository.appendAll(interactions);
+        if (engagementAggregator.isEnabled()) {
+            engagementAggregator.record(postDeltas);
+        } else {
+            postScoreService.applyEngagementDeltas(postDeltas);
+        }
+        preferenceDeltas.forEach((key, delta) -> applyPreferenceDelta(key.userId(), key.category(), delta));
+        seenPostsService.markSeen(seenPosts);
+        evictRecommendations(userIds);
+
+        log.debug("Processed {} interaction events: {} posts, {} preferences",
+                events.size(), postDeltas.size(), preferenceDeltas.size());
+    }
+
+    /**
+     * Drop the cached recommendations of users who just interacted; this
+     * happens on commit
+     */
+    private void evictRecommendations(Collection<Long> userIds) {
+        recommendationCache.evict(userIds);
+    }
+
+    private UserInteraction toInteraction(UserInteractionEvent event) {
         try {
             String metadataJson = null;
             if (event.getMetadata() != null && !event.getMetadata().isEmpty()) {
                 metadataJson = objectMapper.writeValueAsString(event.getMetadata());
             }
 
-            UserInteraction interaction = UserInteraction.builder()
+            return UserInteraction.builder()
                     .userId(event.getUserId())
                     .postId(event.getPostId())
                     .interactionType(event.getInteractionType())
                     .metadata(metadataJson)
                     .build();
-
-            interactionRepository.save(interaction);
-
-            // Update post score
-            updatePostScore(event.getPostId(), event.getInteractionType());
-
-            // Update user preferences if category is in metadata
-            if (event.getMetadata() != null && event.getMetadata().containsKey("category")) {
-                String category = event.getMetadata().get("category").toString();
-                updateUserPreference(event.getUserId(), category, event.getInteractionType());
-            }
-
         } catch (JsonProcessingException e) {
             log.error("Error processing interaction event metadata", e);
             throw new RuntimeException("Failed to process interaction event", e);
@@ -105,74 +154,22 @@ public class InteractionService {
     }
 
     private void updatePostScore(Long postId, UserInteraction.InteractionType type) {
-        PostScore postScore = postScoreRepository.findByPostId(postId)
-                .orElse(PostScore.builder()
-                        .postId(postId)
-                        .totalScore(0.0)
-                        .likeCount(0)
-                        .commentCount(0)
-                        .shareCount(0)
-                        .viewCount(0)
-                        .bookmarkCount(0)
-                        .build());
-
-        // Update counts
-        switch (type) {
-            case LIKE:
-                postScore.setLikeCount(postScore.getLikeCount() + 1);
-                break;
-            case COMMENT:
-                postScore.setCommentCount(postScore.getCommentCount() + 1);
-                break;
-            case SHARE:
-                postScore.setShareCount(postScore.getShareCount() + 1);
-                break;
-            case VIEW:
-                postScore.setViewCount(postScore.getViewCount() + 1);
-                break;
-            case BOOKMARK:
-                postScore.setBookmarkCount(postScore.getBookmarkCount() + 1);
-                break;
-            case UNLIKE:
-                postScore.setLikeCount(Math.max(0, postScore.getLikeCount() - 1));
-                break;
+        if (engagementAggregator.isEnabled()) {
+            engagementAggregator.record(postId, type);
+        } else {
+            postScoreService.applyEngagementDeltas(Map.of(postId, EngagementDelta.of(type)));
         }
-
-        // Calculate total score
-        double totalScore = (postScore.getLikeCount() * likeWeight) +
-                (postScore.getCommentCount() * commentWeight) +
-                (postScore.getShareCount() * shareWeight) +
-                (postScore.getViewCount() * viewWeight) +
-                (postScore.getBookmarkCount() * shareWeight);
-
-        postScore.setTotalScore(totalScore);
-        postScoreRepository.save(postScore);
-
-        log.debug("Updated post score for postId {}: total={}", postId, totalScore);
     }
 
     private void updateUserPreference(Long userId, String category, UserInteraction.InteractionType type) {
-        UserPreference preference = userPreferenceRepository
-                .findByUserIdAndCategory(userId, category)
-                .orElse(UserPreference.builder()
-                        .userId(userId)
-                        .category(category)
-                        .preferenceScore(0.0)
-                        .interactionCount(0)
-                        .build());
-
-        // Increment interaction count
-        preference.setInteractionCount(preference.getInteractionCount() + 1);
-
-        // Update preference score (weighted by interaction type)
-        double increment = getPreferenceIncrement(type);
-        double newScore = Math.min(1.0, preference.getPreferenceScore() + increment);
-        preference.setPreferenceScore(newScore);
-
-        userPreferenceRepository.save(preference);
-
-        log.debug("Updated user preference: userId={}, category={}, score={}",
-                userId, category, newScore);
+        applyPreferenceDelta(userId, category, new PreferenceDelta().add(getPreferenceIncrement(type)));
+    }
+
+    private void applyPreferenceDelta(Long userId, String category, PreferenceDelta delta) {
+        userPreferenceRepository.incrementPreference(userId, category, delta.increment, delta.count);
+
+        log.debug("Updated user preference: userId={}, category={}, increment={}",
+                userId, category, delta.increment);
     }
 
     private double getPreferenceIncrement(UserInteraction.InteractionType type) {
@@ -210,4 +207,20 @@ public class InteractionService {
             log.error("Failed to publish interaction event", e);
         }
     }
+
+    private record PreferenceKey(Long userId, String category) {
+        static final Comparator<PreferenceKey> ORDER = Comparator.comparing(PreferenceKey::userId)
+                .thenComparing(PreferenceKey::category);
+    }
+
+    private static class PreferenceDelta {
+        private int count;
+        private double increment;
+
+        PreferenceDelta add(double value) {
+            count++;
+            increment += value;
+            return this;
+        }
+    }
 }
@@ -0,0 +1,168 @@
+package com.studysync.recommendation.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.studysync.recommendation.grpc.PostResponse;
+import com.studysync.recommendation.grpc.client.GrpcPostClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Node-local cache of post details from the Laravel backend, shared by all
+ * users.
+ *
+ * Entries expire after a TTL. Posts that Laravel does not return are cached
+ * as missing for a shorter TTL so they are not asked for again on every
+ * request. All misses of a lookup are fetched with a single
+ * GetBatchPostInfo call, and concurrent lookups wait for a fetch already in
+ * flight instead of repeating it. Lifecycle events invalidate entries, and
+ * the invalidation is broadcast over Redis pub/sub to the other nodes; an
+ * invalidation during a fetch discards that fetch's result.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PostDetailCache implements MessageListener {
+
+    // Marks a post that Laravel did not return (deleted or never existed)
+    private static final PostResponse MISSING = PostResponse.getDefaultInstance();
+
+    private final GrpcPostClient grpcPostClient;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.post-details.cache.max-size:50000}")
+    private long maxSize;
+
+    @Value("${app.post-details.cache.ttl:10m}")
+    private Duration ttl;
+
+    @Value("${app.post-details.cache.missing-ttl:1m}")
+    private Duration missingTtl;
+
+    @Value("${app.post-details.invalidation-channel:post-detail-invalidation}")
+    private String invalidationChannel;
+
+    private AsyncCache<Long, PostResponse> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<Long, PostResponse>() {
+                    @Override
+                    public long expireAfterCreate(Long postId, PostResponse post, long currentTime) {
+                        return (post == MISSING ? missingTtl : ttl).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Long postId, PostResponse post, long currentTime,
+                            long currentDuration) {
+                        return expireAfterCreate(postId, post, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(Long postId, PostResponse post, long currentTime,
+                            long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "postDetails");
+
+        listenerContainer.addMessageListener(this, new ChannelTopic(invalidationChannel));
+    }
+
+    /**
+     * Details of the given posts, keyed by post ID: empty for posts Laravel
+     * does not know. Misses are fetched in one batch call; if that call fails
+     * they are left out of the result and not cached.
+     */
+    public Map<Long, Optional<PostResponse>> getDetails(Collection<Long> postIds) {
+        Set<Long> ids = new LinkedHashSet<>(postIds);
+        Map<Long, PostResponse> posts;
+        try {
+            // Misses are fetched on the calling thread; lookups overlapping it wait for the same fetch
+            posts = cache.getAll(ids, (misses, executor) -> fetch(misses)).join();
+        } catch (Exception e) {
+            log.warn("Failed to fetch details for {} posts: {}", ids.size(), e.getMessage());
+            posts = cache.synchronous().getAllPresent(ids);
+        }
+
+        Map<Long, Optional<PostResponse>> details = new HashMap<>(posts.size() * 2);
+        posts.forEach((postId, post) -> details.put(postId, post == MISSING ? Optional.empty() : Optional.of(post)));
+        return details;
+    }
+
+    /**
+     * One GetBatchPostInfo call for the given misses; posts Laravel does not
+     * return are loaded as missing
+     */
+    private CompletableFuture<Map<Long, PostResponse>> fetch(Set<? extends Long> misses) {
+        List<PostResponse> fetched;
+        try {
+            fetched = grpcPostClient.fetchBatchPostInfo(new ArrayList<>(misses));
+        } catch (Exception e) {
+            // Nothing is cached, so the next lookup retries
+            return CompletableFuture.failedFuture(e);
+        }
+
+        Map<Long, PostResponse> found = new HashMap<>(misses.size() * 2);
+        for (PostResponse post : fetched) {
+            if (post.getId() != 0) {
+                found.put(post.getId(), post);
+            }
+        }
+        int returned = found.size();
+        misses.forEach(postId -> found.putIfAbsent(postId, MISSING));
+        log.debug("Post details: {} fetched, {} missing", returned, misses.size() - returned);
+        return CompletableFuture.completedFuture(found);
+    }
+
+    /**
+     * Drop a post's details on this node and every other node
+     */
+    public void invalidate(Long postId) {
+        cache.synchronous().invalidate(postId);
+        try {
+            redisTemplate.convertAndSend(invalidationChannel, String.valueOf(postId));
+        } catch (Exception e) {
+            // Other nodes fall back to the TTL
+            log.warn("Failed to broadcast post detail invalidation for {}: {}", postId, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            cache.synchronous().invalidate(Long.parseLong(new String(message.getBody(), StandardCharsets.UTF_8)));
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed post detail invalidation: {}", e.getMessage());
+        }
+    }
+}
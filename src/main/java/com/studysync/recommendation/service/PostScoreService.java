@@ -1,12 +1,25 @@
 package com.studysync.recommendation.service;
 
+import com.studysync.recommendation.dto.PostScoreChangeEvent;
+import com.studysync.recommendation.kafka.EventProducer;
 import com.studysync.recommendation.model.PostScore;
 import com.studysync.recommendation.repository.PostScoreRepository;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -16,7 +29,14 @@ import java.util.stream.Collectors;
  * 
  * Uses a hybrid approach:
  * - PostgreSQL for persistent score storage
- * - Redis Sorted Sets for fast ranking retrieval
+ * - An in-memory {@link RankingReplica} per node for ranking reads, kept in
+ *   sync through score change events
+ * - Redis Sorted Sets as the shared fallback while the replica is loading
+ *
+ * Every ranking (replica, Redis and the database fallbacks) is ordered by the
+ * time-decay-encoded rank score from {@link RankScoreCodec}, so older posts
+ * sink without any rescoring. Scores handed to callers are decoded back to
+ * today's decayed score.
  */
 @Service
 @RequiredArgsConstructor
@@ -25,12 +45,86 @@ public class PostScoreService {
 
     private final PostScoreRepository postScoreRepository;
     private final RedisTemplate<String, String> redisTemplate;
+    private final RankingReplica rankingReplica;
+    private final EventProducer eventProducer;
+    private final RankScoreCodec rankScoreCodec;
+    private final TransactionTemplate transactionTemplate;
+    private final TrendingService trendingService;
 
     // Redis keys for different ranking lists
     private static final String GLOBAL_RANKING_KEY = "post_rankings:global";
     private static final String CATEGORY_RANKING_PREFIX = "post_rankings:category:";
     private static final String AUTHOR_RANKING_PREFIX = "post_rankings:author:";
-    private static final String TRENDING_KEY = "post_rankings:trending";
+    // Decay rate the stored rank scores were encoded with
+    private static final String WARM_LOCK_SUFFIX = ":warming";
+    private static final String WARM_TEMP_SUFFIX = ":warm";
+    private static final int WARM_PAGE_SIZE = 1000;
+    private static final String RANK_DECAY_RATE_KEY = "post_scores:rank_decay_rate";
+
+    @Value("${app.recommendation.like-weight}")
+    private Double likeWeight;
+
+    @Value("${app.recommendation.comment-weight}")
+    private Double commentWeight;
+
+    @Value("${app.recommendation.share-weight}")
+    private Double shareWeight;
+
+    @Value("${app.recommendation.view-weight}")
+    private Double viewWeight;
+
+    /**
+     * A post and its decayed ranking score
+     */
+    public record RankedPost(long postId, double score) {
+    }
+
+    /**
+     * Encode rank scores for rows written before the column existed, or for
+     * every row if the decay rate changed since they were encoded
+     */
+    @PostConstruct
+    public void init() {
+        double decayRate = rankScoreCodec.decayRate();
+        Boolean changed = rankDecayRateChanged(decayRate);
+        boolean rateChanged = Boolean.TRUE.equals(changed);
+        try {
+            Integer encoded = transactionTemplate.execute(status ->
+                    postScoreRepository.encodeRankScores(decayRate, rateChanged));
+            if (encoded != null && encoded > 0) {
+                log.info("Encoded rank scores for {} posts{}", encoded, rateChanged ? " after a decay rate change" : "");
+            }
+            if (rateChanged) {
+                rebuildRedisRankings();
+            }
+            if (changed != null) {
+                redisTemplate.opsForValue().set(RANK_DECAY_RATE_KEY, Double.toString(decayRate));
+            }
+        } catch (Exception e) {
+            log.warn("Failed to encode rank scores: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Whether stored rank scores were encoded with a different decay rate (a
+     * missing or unreadable record counts as different), or null if Redis
+     * could not be reached
+     */
+    private Boolean rankDecayRateChanged(double decayRate) {
+        String stored;
+        try {
+            stored = redisTemplate.opsForValue().get(RANK_DECAY_RATE_KEY);
+        } catch (Exception e) {
+            // Only missing scores are filled in; the next start checks again
+            log.warn("Failed to read the rank score decay rate: {}", e.getMessage());
+            return null;
+        }
+        try {
+            return stored == null || Math.abs(Double.parseDouble(stored) - decayRate) > 1e-12;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
 
     /**
      * Initialize a new post score when a post is created
@@ -48,6 +142,7 @@ public class PostScoreService {
                 .authorId(authorId)
                 .category(category)
                 .totalScore(0.0)
+                .rankScore(rankScoreCodec.encode(0.0, null))
                 .likeCount(0)
                 .commentCount(0)
                 .shareCount(0)
@@ -56,6 +151,8 @@ public class PostScoreService {
                 .build();
 
         postScoreRepository.save(postScore);
+        syncToRedisRankings(postScore);
+        publishChanges(List.of(postScore));
         log.info("Initialized post score for postId: {}", postId);
     }
 
@@ -67,13 +164,15 @@ public class PostScoreService {
         postScoreRepository.findByPostId(postId).ifPresent(postScore -> {
             String oldCategory = postScore.getCategory();
             postScore.setCategory(category);
-            postScoreRepository.save(postScore);
+            // Flush so the published change carries the new version
+            postScoreRepository.saveAndFlush(postScore);
 
             // Update Redis rankings if category changed
             if (oldCategory != null && !oldCategory.equals(category)) {
                 removeFromCategoryRanking(postId, oldCategory);
-                updateCategoryRanking(postId, postScore.getTotalScore(), category);
+                updateCategoryRanking(postId, rankScore(postScore), category);
             }
+            publishChanges(List.of(postScore));
 
             log.debug("Updated metadata for postId: {}", postId);
         });
@@ -87,6 +186,7 @@ public class PostScoreService {
         postScoreRepository.findByPostId(postId).ifPresent(postScore -> {
             // Remove from all Redis rankings
             removeFromAllRankings(postId, postScore);
+            publishRemoval(postScore);
 
             // Delete from database
             postScoreRepository.delete(postScore);
@@ -94,6 +194,278 @@ public class PostScoreService {
         });
     }
 
+    /**
+     * Apply coalesced engagement deltas with one atomic upsert per post.
+     * Counts and total score are computed in the database, so concurrent
+     * writers never lose updates and no entity is loaded.
+     */
+    @Transactional
+    public void applyEngagementDeltas(Map<Long, EngagementDelta> deltas) {
+        // In post ID order, so concurrent callers lock rows in the same order
+        new TreeMap<>(deltas).forEach((postId, delta) -> postScoreRepository.incrementScores(postId,
+                delta.getLikes(),
+                delta.getComments(),
+                delta.getShares(),
+                delta.getViews(),
+                delta.getBookmarks(),
+                likeWeight,
+                commentWeight,
+                shareWeight,
+                viewWeight,
+                shareWeight,
+                rankScoreCodec.decayRate()));
+
+        // Rankings read the committed scores
+        Set<Long> postIds = new HashSet<>(deltas.keySet());
+        afterCommit(() -> syncRankings(postIds));
+
+        log.debug("Applied engagement deltas to {} posts", deltas.size());
+    }
+
+    /**
+     * Total score for the given counts; the same formula as the SQL upsert
+     */
+    public double totalScore(int likes, int comments, int shares, int views, int bookmarks) {
+        return Math.max(likes, 0) * likeWeight
+                + comments * commentWeight
+                + shares * shareWeight
+                + views * viewWeight
+                + bookmarks * shareWeight;
+    }
+
+    /**
+     * Copy the current scores of the given posts into the Redis rankings (one
+     * pipelined round trip) and publish them to the ranking replicas
+     */
+    public void syncRankings(Collection<Long> postIds) {
+        if (postIds.isEmpty()) {
+            return;
+        }
+        try {
+            List<PostScore> scores = postScoreRepository.findByPostIds(new ArrayList<>(postIds));
+            // Runs after commit (or outside a transaction), so publish directly
+            publishNow(toChanges(scores));
+            addToRankings(scores);
+        } catch (Exception e) {
+            log.warn("Failed to sync {} posts to Redis rankings", postIds.size(), e);
+        }
+    }
+
+    /**
+     * Top posts with scores from several rankings in one pipelined round trip.
+     * Each entry of {@code categories} names a category ranking; a null entry
+     * reads the global ranking. Served by the replica when it is ready;
+     * otherwise from Redis, with empty rankings filled from the database.
+     */
+    public List<List<RankedPost>> getRankings(List<String> categories, int limit) {
+        List<List<RankedPost>> rankings = new ArrayList<>(categories.size());
+        if (rankingReplica.isReady()) {
+            for (String category : categories) {
+                rankings.add(category == null
+                        ? rankingReplica.topGlobal(limit)
+                        : rankingReplica.topByCategory(category, limit));
+            }
+            return rankings;
+        }
+        try {
+            List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (String category : categories) {
+                    byte[] key = (category == null ? GLOBAL_RANKING_KEY : CATEGORY_RANKING_PREFIX + category)
+                            .getBytes(StandardCharsets.UTF_8);
+                    connection.zSetCommands().zRevRangeWithScores(key, 0, limit - 1);
+                }
+                return null;
+            });
+
+            for (Object result : results) {
+                List<RankedPost> ranking = new ArrayList<>();
+                if (result instanceof Set<?> tuples) {
+                    for (Object tuple : tuples) {
+                        ZSetOperations.TypedTuple<?> typed = (ZSetOperations.TypedTuple<?>) tuple;
+                        ranking.add(new RankedPost(Long.parseLong(String.valueOf(typed.getValue())),
+                                typed.getScore() != null ? rankScoreCodec.decode(typed.getScore()) : 0.0));
+                    }
+                }
+                rankings.add(ranking);
+            }
+        } catch (Exception e) {
+            log.error("Error reading rankings from Redis, falling back to DB", e);
+            rankings.clear();
+            categories.forEach(category -> rankings.add(List.of()));
+        }
+
+        for (int i = 0; i < categories.size(); i++) {
+            if (rankings.get(i).isEmpty()) {
+                rankings.set(i, loadRanking(categories.get(i), limit));
+            }
+        }
+        return rankings;
+    }
+
+    /**
+     * Publish the current state of the given posts and apply it to this node's
+     * replica once the surrounding transaction commits
+     */
+    private void publishChanges(List<PostScore> scores) {
+        List<PostScoreChangeEvent> changes = toChanges(scores);
+        afterCommit(() -> publishNow(changes));
+    }
+
+    /**
+     * Apply changes to this node's replica and publish them right away. Code
+     * that already runs after commit must call this rather than
+     * {@link #publishChanges}: a synchronization registered during afterCommit
+     * is never invoked.
+     */
+    private void publishNow(List<PostScoreChangeEvent> changes) {
+        changes.forEach(rankingReplica::apply);
+        eventProducer.sendScoreChanges(changes);
+    }
+
+    private List<PostScoreChangeEvent> toChanges(List<PostScore> scores) {
+        return scores.stream()
+                .map(score -> PostScoreChangeEvent.builder()
+                        .postId(score.getPostId())
+                        .authorId(score.getAuthorId())
+                        .category(score.getCategory())
+                        .totalScore(score.getTotalScore())
+                        .rankScore(rankScore(score))
+                        .version(score.getVersion())
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    private void publishRemoval(PostScore score) {
+        PostScoreChangeEvent change = PostScoreChangeEvent.builder()
+                .postId(score.getPostId())
+                .removed(true)
+                // Newer than any update of the row being deleted
+                .version(score.getVersion() + 1)
+                .build();
+        afterCommit(() -> {
+            rankingReplica.apply(change);
+            eventProducer.sendScoreChanges(List.of(change));
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Stored rank score, or one encoded on the fly for rows not yet backfilled
+     */
+    private double rankScore(PostScore score) {
+        return score.getRankScore() != null
+                ? score.getRankScore()
+                : rankScoreCodec.encode(score.getTotalScore(), score.getCreatedAt());
+    }
+
+    private static List<Long> postIds(List<RankedPost> ranking) {
+        return ranking.stream()
+                .map(RankedPost::postId)
+                .collect(Collectors.toList());
+    }
+
+    private List<RankedPost> loadRanking(String category, int limit) {
+        List<PostScore> scores = category == null
+                ? postScoreRepository.findTopScoringPosts(PageRequest.of(0, limit))
+                : postScoreRepository.findTopScoringPostsByCategory(category, PageRequest.of(0, limit));
+
+        // Warm the Redis ranking for the next request
+        try {
+            warmRanking(category);
+        } catch (Exception e) {
+            log.warn("Failed to backfill ranking for category {}", category, e);
+        }
+
+        return scores.stream()
+                .map(score -> new RankedPost(score.getPostId(), rankScoreCodec.decode(rankScore(score))))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Rebuild a whole ranking key from the database. Warming only the rows a
+     * request needed would leave a partial key that later reads take as
+     * complete. The ranking is built under a temporary key and renamed into
+     * place; one caller at a time does this, the others keep reading the
+     * database until it is done.
+     */
+    private void warmRanking(String category) {
+        String key = category == null ? GLOBAL_RANKING_KEY : CATEGORY_RANKING_PREFIX + category;
+        String lockKey = key + WARM_LOCK_SUFFIX;
+        if (!Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(lockKey, "1", Duration.ofMinutes(1)))) {
+            return;
+        }
+        try {
+            String tempKey = key + WARM_TEMP_SUFFIX;
+            byte[] temp = tempKey.getBytes(StandardCharsets.UTF_8);
+            redisTemplate.delete(tempKey);
+
+            long lastId = 0;
+            int loaded = 0;
+            List<PostScore> page;
+            do {
+                page = category == null
+                        ? postScoreRepository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, WARM_PAGE_SIZE))
+                        : postScoreRepository.findByCategoryAndIdGreaterThanOrderByIdAsc(category, lastId,
+                                PageRequest.of(0, WARM_PAGE_SIZE));
+                List<PostScore> scores = page;
+                redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    for (PostScore score : scores) {
+                        connection.zSetCommands().zAdd(temp, rankScore(score),
+                                score.getPostId().toString().getBytes(StandardCharsets.UTF_8));
+                    }
+                    return null;
+                });
+                if (!page.isEmpty()) {
+                    lastId = page.get(page.size() - 1).getId();
+                }
+                loaded += page.size();
+            } while (page.size() == WARM_PAGE_SIZE);
+
+            if (loaded > 0) {
+                redisTemplate.rename(tempKey, key);
+                log.info("Warmed ranking {} with {} posts", key, loaded);
+            }
+        } finally {
+            redisTemplate.delete(lockKey);
+        }
+    }
+
+    private void addToRankings(List<PostScore> scores) {
+        if (scores.isEmpty()) {
+            return;
+        }
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (PostScore score : scores) {
+                byte[] member = score.getPostId().toString().getBytes(StandardCharsets.UTF_8);
+                double value = rankScore(score);
+                connection.zSetCommands().zAdd(GLOBAL_RANKING_KEY.getBytes(StandardCharsets.UTF_8), value, member);
+                if (score.getCategory() != null) {
+                    connection.zSetCommands().zAdd(
+                            (CATEGORY_RANKING_PREFIX + score.getCategory()).getBytes(StandardCharsets.UTF_8),
+                            value, member);
+                }
+                if (score.getAuthorId() != null) {
+                    connection.zSetCommands().zAdd(
+                            (AUTHOR_RANKING_PREFIX + score.getAuthorId()).getBytes(StandardCharsets.UTF_8),
+                            value, member);
+                }
+            }
+            return null;
+        });
+    }
+
     /**
      * Update the total score and sync to Redis rankings
      */
@@ -101,10 +473,12 @@ public class PostScoreService {
     public void updateTotalScore(Long postId, Double newScore) {
         postScoreRepository.findByPostId(postId).ifPresent(postScore -> {
             postScore.setTotalScore(newScore);
-            postScoreRepository.save(postScore);
+            postScore.setRankScore(rankScoreCodec.encode(newScore, postScore.getCreatedAt()));
+            postScoreRepository.saveAndFlush(postScore);
 
             // Sync to Redis rankings
             syncToRedisRankings(postScore);
+            publishChanges(List.of(postScore));
 
             log.debug("Updated total score for postId {}: {}", postId, newScore);
         });
@@ -114,13 +488,16 @@ public class PostScoreService {
      * Get top N posts globally
      */
     public List<Long> getTopPosts(int limit) {
+        if (rankingReplica.isReady()) {
+            return postIds(rankingReplica.topGlobal(limit));
+        }
         try {
             Set<String> postIds = redisTemplate.opsForZSet()
                     .reverseRange(GLOBAL_RANKING_KEY, 0, limit - 1);
 
             if (postIds == null || postIds.isEmpty()) {
                 // Fallback to database
-                return postScoreRepository.findTopByTotalScore(limit);
+                return postScoreRepository.findTopByRankScore(limit);
             }
 
             return postIds.stream()
@@ -128,7 +505,7 @@ public class PostScoreService {
                     .collect(Collectors.toList());
         } catch (Exception e) {
             log.error("Error getting top posts from Redis, falling back to DB", e);
-            return postScoreRepository.findTopByTotalScore(limit);
+            return postScoreRepository.findTopByRankScore(limit);
         }
     }
 
@@ -136,6 +513,9 @@ public class PostScoreService {
      * Get top N posts by category
      */
     public List<Long> getTopPostsByCategory(String category, int limit) {
+        if (rankingReplica.isReady()) {
+            return postIds(rankingReplica.topByCategory(category, limit));
+        }
         try {
             String key = CATEGORY_RANKING_PREFIX + category;
             Set<String> postIds = redisTemplate.opsForZSet()
@@ -158,6 +538,9 @@ public class PostScoreService {
      * Get top N posts by author
      */
     public List<Long> getTopPostsByAuthor(Long authorId, int limit) {
+        if (rankingReplica.isReady()) {
+            return postIds(rankingReplica.topByAuthor(authorId, limit));
+        }
         try {
             String key = AUTHOR_RANKING_PREFIX + authorId;
             Set<String> postIds = redisTemplate.opsForZSet()
@@ -177,36 +560,11 @@ public class PostScoreService {
     }
 
     /**
-     * Get trending posts (high velocity of interactions recently)
+     * Get trending posts (highest engagement velocity over the trending window)
      */
     public List<Long> getTrendingPosts(int limit) {
-        try {
-            Set<String> postIds = redisTemplate.opsForZSet()
-                    .reverseRange(TRENDING_KEY, 0, limit - 1);
-
-            if (postIds == null || postIds.isEmpty()) {
-                return postScoreRepository.findTopByTotalScore(limit);
-            }
-
-            return postIds.stream()
-                    .map(Long::parseLong)
-                    .collect(Collectors.toList());
-        } catch (Exception e) {
-            log.error("Error getting trending posts from Redis", e);
-            return postScoreRepository.findTopByTotalScore(limit);
-        }
-    }
-
-    /**
-     * Increment trending score (called on each interaction)
-     */
-    public void incrementTrendingScore(Long postId, Double increment) {
-        try {
-            redisTemplate.opsForZSet()
-                    .incrementScore(TRENDING_KEY, postId.toString(), increment);
-        } catch (Exception e) {
-            log.warn("Failed to increment trending score for post {}", postId, e);
-        }
+        List<Long> postIds = trendingService.getTrending(null, limit);
+        return postIds.isEmpty() ? postScoreRepository.findTopByRankScore(limit) : postIds;
     }
 
     /**
@@ -215,7 +573,7 @@ public class PostScoreService {
     private void syncToRedisRankings(PostScore postScore) {
         try {
             String postIdStr = postScore.getPostId().toString();
-            Double score = postScore.getTotalScore();
+            double score = rankScore(postScore);
 
             // Global ranking
             redisTemplate.opsForZSet().add(GLOBAL_RANKING_KEY, postIdStr, score);
@@ -236,7 +594,7 @@ public class PostScoreService {
         }
     }
 
-    private void updateCategoryRanking(Long postId, Double score, String category) {
+    private void updateCategoryRanking(Long postId, double score, String category) {
         try {
             String key = CATEGORY_RANKING_PREFIX + category;
             redisTemplate.opsForZSet().add(key, postId.toString(), score);
@@ -259,7 +617,7 @@ public class PostScoreService {
             String postIdStr = postId.toString();
 
             redisTemplate.opsForZSet().remove(GLOBAL_RANKING_KEY, postIdStr);
-            redisTemplate.opsForZSet().remove(TRENDING_KEY, postIdStr);
+            trendingService.remove(postId, postScore.getCategory());
 
             if (postScore.getCategory() != null) {
                 removeFromCategoryRanking(postId, postScore.getCategory());
@@ -283,7 +641,6 @@ public class PostScoreService {
 
         // Clear existing rankings
         redisTemplate.delete(GLOBAL_RANKING_KEY);
-        redisTemplate.delete(TRENDING_KEY);
 
         // Rebuild from database
         List<PostScore> allScores = postScoreRepository.findAll();
@@ -0,0 +1,98 @@
+package com.studysync.recommendation.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Ensures user_preferences has its (user_id, category) unique constraint
+ * (PostgreSQL).
+ *
+ * Preference upserts rely on ON CONFLICT (user_id, category). Schema updates
+ * cannot add the constraint to a table that already holds duplicate rows from
+ * the old read-modify-write path, so on startup duplicates are merged (counts
+ * summed, score capped at 1.0) and the constraint is added in one
+ * transaction. If that fails the service does not start, since every
+ * interaction batch would fail otherwise.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PreferenceConstraintMigration {
+
+    private static final String TABLE = "user_preferences";
+    private static final String CONSTRAINT = "uk_user_preference_user_category";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    // Schema updates (the table itself) run when the factory starts
+    private final EntityManagerFactory entityManagerFactory;
+
+    @PostConstruct
+    public void init() {
+        if (!isPostgres() || constraintExists()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> migrate());
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not add " + CONSTRAINT + " to " + TABLE
+                    + "; preference upserts need it", e);
+        }
+    }
+
+    private void migrate() {
+        // Nodes starting together take turns; the loser finds the constraint in place
+        jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(hashtext(?))", TABLE + ":" + CONSTRAINT);
+        if (constraintExists()) {
+            return;
+        }
+        jdbcTemplate.execute("LOCK TABLE " + TABLE + " IN SHARE ROW EXCLUSIVE MODE");
+
+        int merged = jdbcTemplate.update("""
+                UPDATE %1$s p
+                SET preference_score = m.score,
+                    interaction_count = m.interactions,
+                    created_at = m.created,
+                    last_updated = m.updated
+                FROM (SELECT MIN(id) AS keep_id,
+                             LEAST(1.0, SUM(preference_score)) AS score,
+                             SUM(interaction_count) AS interactions,
+                             MIN(created_at) AS created,
+                             MAX(last_updated) AS updated
+                      FROM %1$s
+                      GROUP BY user_id, category
+                      HAVING COUNT(*) > 1) m
+                WHERE p.id = m.keep_id
+                """.formatted(TABLE));
+        int removed = jdbcTemplate.update("""
+                DELETE FROM %1$s p
+                USING %1$s k
+                WHERE p.user_id = k.user_id AND p.category = k.category AND p.id > k.id
+                """.formatted(TABLE));
+        if (merged > 0) {
+            log.info("Merged {} duplicate rows into {} user preferences", removed, merged);
+        }
+
+        jdbcTemplate.execute("ALTER TABLE %s ADD CONSTRAINT %s UNIQUE (user_id, category)"
+                .formatted(TABLE, CONSTRAINT));
+        log.info("Added unique constraint {} to {}", CONSTRAINT, TABLE);
+    }
+
+    private boolean constraintExists() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = ? AND conrelid = to_regclass(?))",
+                Boolean.class, CONSTRAINT, TABLE));
+    }
+
+    private boolean isPostgres() {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName())));
+    }
+}
@@ -0,0 +1,64 @@
+package com.studysync.recommendation.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Time-decay-aware ranking score.
+ *
+ * rank = ln(1 + totalScore) + createdDays x ln(1 / timeDecayFactor), with
+ * createdDays the creation time in (fractional) days since the epoch, UTC.
+ * Decay shrinks every post's score by the same factor per day, so the order
+ * of two posts' decayed scores, (1 + totalScore) x factor^age, never changes
+ * with time; it is fixed by their scores and creation times alone. Ordering
+ * by rank therefore equals ordering by decayed score at any moment, and
+ * stored rankings never need rescoring. {@link #decode} recovers today's
+ * decayed score for callers that compare scores across rankings.
+ */
+@Component
+@Slf4j
+public class RankScoreCodec {
+
+    private static final double MILLIS_PER_DAY = 86_400_000.0;
+
+    @Value("${app.recommendation.time-decay-factor}")
+    private double timeDecayFactor;
+
+    private double decayRate;
+
+    @PostConstruct
+    public void init() {
+        if (timeDecayFactor <= 0.0 || timeDecayFactor > 1.0) {
+            throw new IllegalStateException("app.recommendation.time-decay-factor must be in (0, 1]");
+        }
+        decayRate = Math.log(1.0 / timeDecayFactor);
+        log.debug("Rank score decay rate: {} per day", decayRate);
+    }
+
+    /**
+     * Log-score added per day of creation time; the SQL upsert uses the same
+     * rate
+     */
+    public double decayRate() {
+        return decayRate;
+    }
+
+    public double encode(double totalScore, LocalDateTime createdAt) {
+        LocalDateTime created = createdAt != null ? createdAt : LocalDateTime.now();
+        double createdDays = created.toInstant(ZoneOffset.UTC).toEpochMilli() / MILLIS_PER_DAY;
+        return Math.log1p(Math.max(totalScore, 0.0)) + createdDays * decayRate;
+    }
+
+    /**
+     * Decayed score, (1 + totalScore) x factor^age, as of now
+     */
+    public double decode(double rankScore) {
+        double nowDays = LocalDateTime.now().toInstant(ZoneOffset.UTC).toEpochMilli() / MILLIS_PER_DAY;
+        return Math.exp(rankScore - nowDays * decayRate);
+    }
+}
@@ -0,0 +1,216 @@
+package com.studysync.recommendation.service;
+
+import com.studysync.recommendation.dto.PostScoreChangeEvent;
+import com.studysync.recommendation.model.PostScore;
+import com.studysync.recommendation.repository.PostScoreRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * In-memory copy of the global, per-category and per-author rankings.
+ *
+ * Built from the database once the application is ready, then kept current
+ * from the post score change topic (see PostScoreChangeConsumer). Each
+ * ranking is a skip list ordered by score, so updates are O(log n) and a
+ * top-N read touches only N entries. Changes carry the row version of the
+ * post score, so replayed or reordered events never overwrite newer state. Entries are ordered by the
+ * decay-encoded rank score (RankScoreCodec) and decoded on read.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RankingReplica {
+
+    private final PostScoreRepository postScoreRepository;
+    private final RankScoreCodec rankScoreCodec;
+
+    @Value("${app.ranking.replica.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.ranking.replica.bootstrap-page-size:1000}")
+    private int bootstrapPageSize;
+
+    @Value("${app.ranking.replica.tombstone-retention:1h}")
+    private Duration tombstoneRetention;
+
+    private record Entry(double score, long postId) {
+    }
+
+    private record PostState(double score, String category, Long authorId, long version, boolean removed,
+            long removedAt) {
+    }
+
+    private static final Comparator<Entry> RANK_ORDER = Comparator.comparingDouble(Entry::score).reversed()
+            .thenComparingLong(Entry::postId);
+
+    private final NavigableSet<Entry> global = new ConcurrentSkipListSet<>(RANK_ORDER);
+    private final ConcurrentHashMap<String, NavigableSet<Entry>> byCategory = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, NavigableSet<Entry>> byAuthor = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, PostState> posts = new ConcurrentHashMap<>();
+
+    private volatile boolean ready;
+
+    /**
+     * True once the initial load has finished; until then callers use Redis
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void bootstrap() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            long started = System.currentTimeMillis();
+            long lastId = 0;
+            int loaded = 0;
+            List<PostScore> page;
+            do {
+                page = postScoreRepository.findByIdGreaterThanOrderByIdAsc(lastId,
+                        PageRequest.of(0, bootstrapPageSize));
+                for (PostScore score : page) {
+                    double rankScore = score.getRankScore() != null
+                            ? score.getRankScore()
+                            : rankScoreCodec.encode(score.getTotalScore(), score.getCreatedAt());
+                    apply(score.getPostId(), rankScore, score.getCategory(), score.getAuthorId(),
+                            score.getVersion(), false);
+                    lastId = score.getId();
+                }
+                loaded += page.size();
+            } while (page.size() == bootstrapPageSize);
+
+            ready = true;
+            log.info("Ranking replica loaded {} posts in {} ms", loaded, System.currentTimeMillis() - started);
+        } catch (Exception e) {
+            log.error("Failed to load ranking replica, reads stay on Redis", e);
+        }
+    }
+
+    public void apply(PostScoreChangeEvent change) {
+        if (change.getPostId() == null) {
+            return;
+        }
+        // Events from nodes that predate rank scores are ranked as if the post were new
+        double rankScore = change.getRankScore() != null
+                ? change.getRankScore()
+                : rankScoreCodec.encode(change.getTotalScore() != null ? change.getTotalScore() : 0.0, null);
+        apply(change.getPostId(), rankScore,
+                change.getCategory(), change.getAuthorId(), change.getVersion(), change.isRemoved());
+    }
+
+    public List<PostScoreService.RankedPost> topGlobal(int limit) {
+        return top(global, limit);
+    }
+
+    public List<PostScoreService.RankedPost> topByCategory(String category, int limit) {
+        NavigableSet<Entry> ranking = byCategory.get(category);
+        return ranking != null ? top(ranking, limit) : List.of();
+    }
+
+    public List<PostScoreService.RankedPost> topByAuthor(Long authorId, int limit) {
+        NavigableSet<Entry> ranking = byAuthor.get(authorId);
+        return ranking != null ? top(ranking, limit) : List.of();
+    }
+
+    public int size() {
+        return global.size();
+    }
+
+    private void apply(long postId, double score, String category, Long authorId, long version, boolean removed) {
+        posts.compute(postId, (id, current) -> {
+            if (current != null && current.version() > version) {
+                return current;
+            }
+
+            // Add the new entries before removing the old ones so readers never see a gap
+            Entry entry = new Entry(score, postId);
+            if (!removed) {
+                global.add(entry);
+                if (category != null) {
+                    byCategory.computeIfAbsent(category, key -> new ConcurrentSkipListSet<>(RANK_ORDER)).add(entry);
+                }
+                if (authorId != null) {
+                    byAuthor.computeIfAbsent(authorId, key -> new ConcurrentSkipListSet<>(RANK_ORDER)).add(entry);
+                }
+            }
+
+            if (current != null && !current.removed()) {
+                Entry old = new Entry(current.score(), postId);
+                boolean moved = removed || !old.equals(entry);
+                if (moved) {
+                    global.remove(old);
+                }
+                if (current.category() != null && (moved || !current.category().equals(category))) {
+                    removeFrom(byCategory.get(current.category()), old);
+                }
+                if (current.authorId() != null && (moved || !current.authorId().equals(authorId))) {
+                    removeFrom(byAuthor.get(current.authorId()), old);
+                }
+            }
+
+            // Removed posts keep a tombstone so older events cannot bring them back
+            return new PostState(score, category, authorId, version, removed,
+                    removed ? System.currentTimeMillis() : 0L);
+        });
+    }
+
+    /**
+     * Forget removed posts once reordered events for them can no longer
+     * arrive
+     */
+    @Scheduled(fixedDelayString = "${app.ranking.replica.tombstone-purge-interval-ms:60000}")
+    public void purgeTombstones() {
+        long cutoff = System.currentTimeMillis() - tombstoneRetention.toMillis();
+        int purged = 0;
+        for (var entry : posts.entrySet()) {
+            PostState state = entry.getValue();
+            if (state.removed() && state.removedAt() < cutoff && posts.remove(entry.getKey(), state)) {
+                purged++;
+            }
+        }
+        if (purged > 0) {
+            log.debug("Purged {} removed posts from the ranking replica", purged);
+        }
+    }
+
+    private static void removeFrom(NavigableSet<Entry> ranking, Entry entry) {
+        if (ranking != null) {
+            ranking.remove(entry);
+        }
+    }
+
+    private List<PostScoreService.RankedPost> top(NavigableSet<Entry> ranking, int limit) {
+        List<PostScoreService.RankedPost> result = new ArrayList<>(Math.min(limit, 64));
+        // A post can briefly appear twice while it moves
+        Set<Long> seen = new HashSet<>();
+        for (Entry entry : ranking) {
+            if (result.size() >= limit) {
+                break;
+            }
+            if (seen.add(entry.postId())) {
+                result.add(new PostScoreService.RankedPost(entry.postId(), rankScoreCodec.decode(entry.score())));
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,362 @@
+package com.studysync.recommendation.service;
+
+import com.studysync.recommendation.dto.CachedRecommendations;
+import com.studysync.recommendation.dto.PostRecommendationEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * Read-through cache for recommendations with request coalescing.
+ *
+ * - Single flight: one computation per user runs at a time on this node and
+ *   every concurrent caller shares its result
+ * - Across nodes, the computing node holds a short Redis lease; on a miss,
+ *   other nodes wait briefly for its result before computing themselves
+ * - Stale-while-revalidate: an entry older than fresh-for is returned right
+ *   away while a refresh runs in the background
+ * - Invalidation: {@link #evict} bumps a per-user generation; a computation
+ *   that started before the bump returns its result but does not cache it,
+ *   so a load racing an interaction cannot restore pre-interaction results
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RecommendationCache {
+
+    public static final String CACHE_NAME = "recommendations";
+
+    private static final String LEASE_PREFIX = "recommendations:lease:";
+    private static final int GENERATION_STRIPES = 4096;
+    private static final RedisScript<Long> RELEASE_LEASE = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final CacheManager cacheManager;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final Environment environment;
+
+    @Value("${app.recommendation.cache.fresh-for:30m}")
+    private Duration freshFor;
+
+    @Value("${app.recommendation.cache.lease.enabled:true}")
+    private boolean leaseEnabled;
+
+    @Value("${app.recommendation.cache.lease.ttl:5s}")
+    private Duration leaseTtl;
+
+    @Value("${app.recommendation.cache.lease.wait:2s}")
+    private Duration leaseWait;
+
+    @Value("${app.recommendation.cache.refresh-threads:2}")
+    private int refreshThreads;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final ConcurrentHashMap<Long, CompletableFuture<List<PostRecommendationEvent.RecommendedPost>>> inFlight =
+            new ConcurrentHashMap<>();
+
+    // Invalidation generations, striped by user; a collision only skips a cache write
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    private Cache cache;
+    private Executor refreshExecutor;
+
+    @PostConstruct
+    public void init() {
+        cache = cacheManager.getCache(CACHE_NAME);
+
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor virtualExecutor = new SimpleAsyncTaskExecutor("recommendation-refresh-");
+            virtualExecutor.setVirtualThreads(true);
+            virtualExecutor.setConcurrencyLimit(refreshThreads);
+            refreshExecutor = virtualExecutor;
+        } else {
+            AtomicInteger counter = new AtomicInteger();
+            refreshExecutor = Executors.newFixedThreadPool(refreshThreads, r -> {
+                Thread thread = new Thread(r, "recommendation-refresh-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (refreshExecutor instanceof ExecutorService executorService) {
+            executorService.shutdown();
+            try {
+                executorService.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Cached recommendations for the user, computing them with the loader on a
+     * miss and refreshing them in the background once they are stale
+     */
+    public List<PostRecommendationEvent.RecommendedPost> get(Long userId,
+            Function<Long, List<PostRecommendationEvent.RecommendedPost>> loader) {
+        CachedRecommendations cached = read(userId);
+        if (cached != null) {
+            if (System.currentTimeMillis() - cached.getGeneratedAt() >= freshFor.toMillis()) {
+                load(userId, loader, true);
+            }
+            return cached.getRecommendations();
+        }
+
+        try {
+            List<PostRecommendationEvent.RecommendedPost> recommendations = load(userId, loader, false).join();
+            // Null when we joined a background refresh that deferred to another node
+            return recommendations != null ? recommendations : loader.apply(userId);
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Store recommendations computed elsewhere (e.g. by bulk precomputation)
+     * as a fresh entry, unless the user's entry was invalidated since
+     * {@code expectedGeneration} was read
+     *
+     * @param expectedGeneration {@link #generation} read before computing
+     */
+    public void put(Long userId, List<PostRecommendationEvent.RecommendedPost> recommendations,
+            long expectedGeneration) {
+        writeIfCurrent(userId, recommendations, expectedGeneration);
+    }
+
+    /**
+     * Current invalidation generation of the user's entry; read it before
+     * computing recommendations that are passed to {@link #put}
+     */
+    public long generation(Long userId) {
+        return generations.get(stripe(userId));
+    }
+
+    /**
+     * Drop the users' cached recommendations once the current transaction (if
+     * any) commits, and keep computations already running from caching what
+     * they read before the change
+     */
+    public void evict(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        userIds.forEach(this::bumpGeneration);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Registered before the evictions below, so it runs ahead of them on commit
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    userIds.forEach(RecommendationCache.this::bumpGeneration);
+                }
+            });
+        }
+        if (cache == null) {
+            return;
+        }
+        for (Long userId : userIds) {
+            try {
+                // Transaction aware: happens on commit
+                cache.evict(userId);
+            } catch (Exception e) {
+                log.warn("Failed to evict cached recommendations for user {}: {}", userId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Join the user's in-flight computation or start one. Background refreshes
+     * run on the refresh executor; a miss computes on the calling thread.
+     */
+    private CompletableFuture<List<PostRecommendationEvent.RecommendedPost>> load(Long userId,
+            Function<Long, List<PostRecommendationEvent.RecommendedPost>> loader, boolean background) {
+        CompletableFuture<List<PostRecommendationEvent.RecommendedPost>> flight = new CompletableFuture<>();
+        CompletableFuture<List<PostRecommendationEvent.RecommendedPost>> existing = inFlight.putIfAbsent(userId, flight);
+        if (existing != null) {
+            return existing;
+        }
+
+        Runnable compute = () -> {
+            try {
+                flight.complete(computeWithLease(userId, loader, background));
+            } catch (Throwable t) {
+                flight.completeExceptionally(t);
+            } finally {
+                inFlight.remove(userId, flight);
+            }
+        };
+
+        if (background) {
+            try {
+                refreshExecutor.execute(compute);
+            } catch (Exception e) {
+                inFlight.remove(userId, flight);
+                flight.complete(null);
+                log.warn("Failed to schedule recommendation refresh for user {}: {}", userId, e.getMessage());
+            }
+        } else {
+            compute.run();
+        }
+        return flight;
+    }
+
+    private List<PostRecommendationEvent.RecommendedPost> computeWithLease(Long userId,
+            Function<Long, List<PostRecommendationEvent.RecommendedPost>> loader, boolean background) {
+        String leaseKey = LEASE_PREFIX + userId;
+        boolean leased = acquireLease(leaseKey);
+
+        if (!leased) {
+            if (background) {
+                // Another node is refreshing; keep serving the stale entry
+                return null;
+            }
+            CachedRecommendations cached = awaitOtherNode(userId);
+            if (cached != null) {
+                return cached.getRecommendations();
+            }
+            log.debug("Timed out waiting for another node's recommendations for user {}", userId);
+        }
+
+        try {
+            long generation = generation(userId);
+            List<PostRecommendationEvent.RecommendedPost> recommendations = loader.apply(userId);
+            writeIfCurrent(userId, recommendations, generation);
+            return recommendations;
+        } finally {
+            if (leased) {
+                releaseLease(leaseKey);
+            }
+        }
+    }
+
+    private void writeIfCurrent(Long userId, List<PostRecommendationEvent.RecommendedPost> recommendations,
+            long generation) {
+        if (generation(userId) != generation) {
+            log.debug("Recommendations for user {} were invalidated while computing; not caching", userId);
+            return;
+        }
+        write(userId, recommendations);
+        if (generation(userId) != generation) {
+            // Invalidated between the check and the write
+            evictQuietly(userId);
+        }
+    }
+
+    private void bumpGeneration(Long userId) {
+        generations.incrementAndGet(stripe(userId));
+    }
+
+    private static int stripe(Long userId) {
+        return Math.floorMod(Long.hashCode(userId), GENERATION_STRIPES);
+    }
+
+    private void evictQuietly(Long userId) {
+        try {
+            cache.evict(userId);
+        } catch (Exception e) {
+            log.warn("Failed to evict cached recommendations for user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    private CachedRecommendations awaitOtherNode(Long userId) {
+        long deadline = System.nanoTime() + leaseWait.toNanos();
+        try {
+            while (System.nanoTime() < deadline) {
+                Thread.sleep(50);
+                CachedRecommendations cached = read(userId);
+                if (cached != null) {
+                    return cached;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    private boolean acquireLease(String leaseKey) {
+        if (!leaseEnabled) {
+            return true;
+        }
+        try {
+            return !Boolean.FALSE.equals(redisTemplate.opsForValue().setIfAbsent(leaseKey, nodeId, leaseTtl));
+        } catch (Exception e) {
+            // Fail open: compute locally rather than fail the request
+            log.warn("Failed to acquire recommendation lease {}: {}", leaseKey, e.getMessage());
+            return true;
+        }
+    }
+
+    private void releaseLease(String leaseKey) {
+        if (!leaseEnabled) {
+            return;
+        }
+        try {
+            redisTemplate.execute(RELEASE_LEASE, List.of(leaseKey), nodeId);
+        } catch (Exception e) {
+            log.warn("Failed to release recommendation lease {}: {}", leaseKey, e.getMessage());
+        }
+    }
+
+    private CachedRecommendations read(Long userId) {
+        if (cache == null) {
+            return null;
+        }
+        try {
+            Cache.ValueWrapper wrapper = cache.get(userId);
+            // Entries from before the envelope was introduced are treated as misses
+            return wrapper != null && wrapper.get() instanceof CachedRecommendations cached ? cached : null;
+        } catch (Exception e) {
+            log.warn("Failed to read cached recommendations for user {}: {}", userId, e.getMessage());
+            return null;
+        }
+    }
+
+    private void write(Long userId, List<PostRecommendationEvent.RecommendedPost> recommendations) {
+        if (cache == null || recommendations == null) {
+            return;
+        }
+        try {
+            cache.put(userId, CachedRecommendations.builder()
+                    .recommendations(recommendations)
+                    .generatedAt(System.currentTimeMillis())
+                    .build());
+        } catch (Exception e) {
+            log.warn("Failed to cache recommendations for user {}: {}", userId, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.studysync.recommendation.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.studysync.recommendation.model.PostScore;
+import com.studysync.recommendation.model.UserPreference;
+import com.studysync.recommendation.repository.PostScoreRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Keyset pagination over the user's candidate sources.
+ *
+ * Sources are the user's top categories plus the global ranking restricted to
+ * the remaining categories, so no post is reachable from two sources. Each
+ * source is read in windows ordered by (rankScore desc, postId asc) and
+ * merged by decayed score x (1 + preference). Seen posts are skipped, and
+ * windows are fetched until the page is full or the scan budget is spent.
+ * The cursor records each source's last position (and the categories chosen
+ * on the first page), so later pages continue where the previous one stopped.
+ *
+ * Rank scores move while a user pages. Engagement only raises a score, which
+ * moves a post behind the cursor: an unserved post that overtakes it is not
+ * shown in this pass, and a served post stays behind it. A score can drop
+ * (unlikes, re-encoding), which would bring a served post back in front of
+ * the cursor, so the cursor also carries the most recently served post IDs
+ * (up to max-served-ids) and those are skipped like seen posts.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RecommendationPager {
+
+    private static final double START_SCORE = Double.MAX_VALUE;
+
+    private final PostScoreRepository postScoreRepository;
+    private final ObjectMapper objectMapper;
+    private final RankScoreCodec rankScoreCodec;
+
+    @Value("${app.recommendation.candidates.max-categories:5}")
+    private int maxCategories;
+
+    @Value("${app.recommendation.paging.window-size:50}")
+    private int windowSize;
+
+    @Value("${app.recommendation.paging.scan-budget:1000}")
+    private int scanBudget;
+
+    @Value("${app.recommendation.paging.max-served-ids:200}")
+    private int maxServedIds;
+
+    private ObjectMapper cursorMapper;
+
+    /**
+     * Posts for one page, in source order, and the cursor for the next page
+     * (null once every source is exhausted)
+     */
+    public record Page(List<PostScore> posts, String nextCursor) {
+    }
+
+    /**
+     * Position of one source; category is null for the global ranking
+     */
+    record SourcePosition(String category, double weight, double score, long postId, boolean exhausted) {
+    }
+
+    /**
+     * @param served post IDs returned on earlier pages, oldest first
+     */
+    record Cursor(List<SourcePosition> sources, List<Long> served) {
+    }
+
+    @PostConstruct
+    public void init() {
+        cursorMapper = objectMapper.copy()
+                .deactivateDefaultTyping()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    }
+
+    /**
+     * @param cursor cursor from the previous page, or null for the first page
+     * @throws IllegalArgumentException if the cursor cannot be decoded
+     */
+    public Page nextPage(List<UserPreference> preferences, Roaring64NavigableMap seen, String cursor, int size) {
+        Cursor decoded = cursor == null ? null : decode(cursor);
+        List<Source> sources = decoded == null ? initialSources(preferences) : sources(decoded);
+        LinkedHashSet<Long> served = decoded == null || decoded.served() == null
+                ? new LinkedHashSet<>()
+                : new LinkedHashSet<>(decoded.served());
+        List<String> categories = sources.stream()
+                .map(source -> source.category)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+
+        List<PostScore> posts = new ArrayList<>(size);
+        int scanned = 0;
+        int windows = 0;
+        while (posts.size() < size) {
+            for (Source source : sources) {
+                if (source.buffer.isEmpty() && !source.drained && scanned < scanBudget) {
+                    List<PostScore> window = fetch(source, categories);
+                    scanned += window.size();
+                    windows++;
+                    source.buffer.addAll(window);
+                    source.drained = window.size() < windowSize;
+                }
+            }
+
+            Source best = null;
+            for (Source source : sources) {
+                if (!source.buffer.isEmpty() && (best == null || headScore(source) > headScore(best))) {
+                    best = source;
+                }
+            }
+            if (best == null) {
+                break; // everything exhausted or the budget is spent
+            }
+
+            PostScore post = best.buffer.poll();
+            best.score = rankScore(post);
+            best.postId = post.getPostId();
+            if (!seen.contains(post.getPostId()) && served.add(post.getPostId())) {
+                posts.add(post);
+            }
+        }
+
+        log.debug("Paged {} recommendations from {} windows ({} rows scanned)", posts.size(), windows, scanned);
+        return new Page(posts, encode(sources, served));
+    }
+
+    private double headScore(Source source) {
+        return rankScoreCodec.decode(rankScore(source.buffer.peek())) * source.weight;
+    }
+
+    private double rankScore(PostScore post) {
+        return post.getRankScore() != null
+                ? post.getRankScore()
+                : rankScoreCodec.encode(post.getTotalScore(), post.getCreatedAt());
+    }
+
+    private List<PostScore> fetch(Source source, List<String> categories) {
+        PageRequest window = PageRequest.of(0, windowSize);
+        if (source.category != null) {
+            return postScoreRepository.findCategoryRankingAfter(source.category, source.score, source.postId, window);
+        }
+        if (categories.isEmpty()) {
+            return postScoreRepository.findRankingAfter(source.score, source.postId, window);
+        }
+        return postScoreRepository.findRankingAfterExcluding(categories, source.score, source.postId, window);
+    }
+
+    private List<Source> initialSources(List<UserPreference> preferences) {
+        List<Source> sources = new ArrayList<>();
+        for (UserPreference preference : preferences) {
+            if (sources.size() == maxCategories) {
+                break;
+            }
+            if (preference.getCategory() != null && preference.getPreferenceScore() != null
+                    && preference.getPreferenceScore() > 0) {
+                sources.add(new Source(preference.getCategory(), 1.0 + preference.getPreferenceScore(),
+                        START_SCORE, 0L, false));
+            }
+        }
+        sources.add(new Source(null, 1.0, START_SCORE, 0L, false));
+        return sources;
+    }
+
+    private String encode(List<Source> sources, LinkedHashSet<Long> served) {
+        boolean more = false;
+        List<SourcePosition> positions = new ArrayList<>(sources.size());
+        for (Source source : sources) {
+            // Buffered rows are re-read on the next page, from the last returned position
+            boolean exhausted = source.drained && source.buffer.isEmpty();
+            more |= !exhausted;
+            positions.add(new SourcePosition(source.category, source.weight, source.score, source.postId,
+                    exhausted));
+        }
+        if (!more) {
+            return null;
+        }
+        List<Long> recent = new ArrayList<>(served);
+        if (recent.size() > maxServedIds) {
+            recent = recent.subList(recent.size() - maxServedIds, recent.size());
+        }
+        try {
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(cursorMapper.writeValueAsBytes(new Cursor(positions, recent)));
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to encode recommendation cursor", e);
+        }
+    }
+
+    private Cursor decode(String cursor) {
+        try {
+            Cursor decoded = cursorMapper.readValue(Base64.getUrlDecoder().decode(cursor), Cursor.class);
+            if (decoded == null || decoded.sources() == null || decoded.sources().isEmpty()) {
+                throw new IllegalArgumentException("Empty recommendation cursor");
+            }
+            return decoded;
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid recommendation cursor", e);
+        }
+    }
+
+    private static List<Source> sources(Cursor cursor) {
+        return cursor.sources().stream()
+                .map(position -> new Source(position.category(), position.weight(), position.score(),
+                        position.postId(), position.exhausted()))
+                .collect(Collectors.toList());
+    }
+
+    private static final class Source {
+        private final String category;
+        private final double weight;
+        private final ArrayDeque<PostScore> buffer = new ArrayDeque<>();
+        private double score;
+        private long postId;
+        private boolean drained;
+
+        Source(String category, double weight, double score, long postId, boolean drained) {
+            this.category = category;
+            this.weight = weight;
+            this.score = score;
+            this.postId = postId;
+            this.drained = drained;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.studysync.recommendation.service;
+
+import com.studysync.recommendation.repository.UserInteractionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Periodically materializes recommendations for recently active users so
+ * their reads are cache hits.
+ *
+ * Active users (any interaction within the active window) are walked in user
+ * ID order, one chunk at a time; each chunk is scored together with shared
+ * candidate data, cached and published. One node runs the job at a time,
+ * holding a Redis lease that is renewed after every chunk. The last finished
+ * user is checkpointed in Redis, so a run interrupted by a restart or a lost
+ * lease is resumed (with the same activity cutoff) by the next run on any
+ * node.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RecommendationPrecomputeJob {
+
+    private static final String LEASE_KEY = "recommendations:precompute:lease";
+    private static final String CHECKPOINT_KEY = "recommendations:precompute:checkpoint";
+    private static final String SINCE_FIELD = "since";
+    private static final String LAST_USER_FIELD = "lastUserId";
+
+    private static final RedisScript<Long> RENEW_LEASE = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end",
+            Long.class);
+    private static final RedisScript<Long> RELEASE_LEASE = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final UserInteractionRepository interactionRepository;
+    private final RecommendationService recommendationService;
+    private final RedisTemplate<String, String> redisTemplate;
+
+    @Value("${app.recommendation.precompute.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.recommendation.precompute.active-window:24h}")
+    private Duration activeWindow;
+
+    @Value("${app.recommendation.precompute.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${app.recommendation.precompute.lease-ttl:5m}")
+    private Duration leaseTtl;
+
+    // An abandoned checkpoint is discarded after this long and the next run starts over
+    @Value("${app.recommendation.precompute.checkpoint-ttl:6h}")
+    private Duration checkpointTtl;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @Scheduled(initialDelayString = "${app.recommendation.precompute.initial-delay-ms:60000}",
+            fixedDelayString = "${app.recommendation.precompute.interval-ms:900000}")
+    public void run() {
+        if (!enabled) {
+            return;
+        }
+        if (!acquireLease()) {
+            log.debug("Recommendation precompute is running on another node");
+            return;
+        }
+        try {
+            precompute();
+        } catch (Exception e) {
+            // The checkpoint is kept; the next run resumes from it
+            log.error("Recommendation precompute failed", e);
+        } finally {
+            releaseLease();
+        }
+    }
+
+    private void precompute() {
+        long started = System.currentTimeMillis();
+        Map<Object, Object> checkpoint = redisTemplate.opsForHash().entries(CHECKPOINT_KEY);
+
+        long sinceMillis;
+        long lastUserId;
+        if (checkpoint.containsKey(SINCE_FIELD) && checkpoint.containsKey(LAST_USER_FIELD)) {
+            sinceMillis = Long.parseLong((String) checkpoint.get(SINCE_FIELD));
+            lastUserId = Long.parseLong((String) checkpoint.get(LAST_USER_FIELD));
+            log.info("Resuming recommendation precompute after user {}", lastUserId);
+        } else {
+            sinceMillis = started - activeWindow.toMillis();
+            lastUserId = 0L;
+            saveCheckpoint(sinceMillis, lastUserId);
+        }
+        LocalDateTime since = LocalDateTime.ofInstant(Instant.ofEpochMilli(sinceMillis), ZoneId.systemDefault());
+
+        int users = 0;
+        int chunks = 0;
+        while (true) {
+            List<Long> userIds = interactionRepository.findActiveUserIdsAfter(since, lastUserId,
+                    PageRequest.of(0, chunkSize));
+            if (userIds.isEmpty()) {
+                break;
+            }
+
+            recommendationService.precomputeRecommendations(userIds);
+            lastUserId = userIds.get(userIds.size() - 1);
+            users += userIds.size();
+            chunks++;
+            saveCheckpoint(sinceMillis, lastUserId);
+
+            if (!renewLease()) {
+                log.warn("Lost the recommendation precompute lease after user {}; stopping", lastUserId);
+                return;
+            }
+            if (userIds.size() < chunkSize) {
+                break;
+            }
+        }
+
+        redisTemplate.delete(CHECKPOINT_KEY);
+        log.info("Precomputed recommendations for {} active users in {} chunks in {} ms", users, chunks,
+                System.currentTimeMillis() - started);
+    }
+
+    private void saveCheckpoint(long sinceMillis, long lastUserId) {
+        redisTemplate.opsForHash().putAll(CHECKPOINT_KEY, Map.of(
+                SINCE_FIELD, String.valueOf(sinceMillis),
+                LAST_USER_FIELD, String.valueOf(lastUserId)));
+        redisTemplate.expire(CHECKPOINT_KEY, checkpointTtl);
+    }
+
+    private boolean acquireLease() {
+        try {
+            return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(LEASE_KEY, nodeId, leaseTtl));
+        } catch (Exception e) {
+            // Results go to the Redis-backed cache, so there is no point running without it
+            log.warn("Failed to acquire recommendation precompute lease: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean renewLease() {
+        try {
+            Long renewed = redisTemplate.execute(RENEW_LEASE, List.of(LEASE_KEY), nodeId,
+                    String.valueOf(leaseTtl.toMillis()));
+            return renewed != null && renewed == 1L;
+        } catch (Exception e) {
+            log.warn("Failed to renew recommendation precompute lease: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private void releaseLease() {
+        try {
+            redisTemplate.execute(RELEASE_LEASE, List.of(LEASE_KEY), nodeId);
+        } catch (Exception e) {
+            log.warn("Failed to release recommendation precompute lease: {}", e.getMessage());
+        }
+    }
+}
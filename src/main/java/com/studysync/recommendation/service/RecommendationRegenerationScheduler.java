@@ -0,0 +1,213 @@
+package com.studysync.recommendation.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Debounces recommendation regeneration per user.
+ *
+ * Each user has at most one pending job. A job becomes due once the user has
+ * been quiet for the quiet period, or once the max delay has passed since the
+ * first request, whichever comes first; requests in between are coalesced.
+ * Due jobs run on a bounded pool; when its queue is full the oldest queued job
+ * is dropped (a later interaction will schedule that user again). Likewise,
+ * past max-pending-users the longest-pending user is dropped; pending users
+ * are also kept in arrival order, so finding that user is O(1).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RecommendationRegenerationScheduler {
+
+    private final RecommendationService recommendationService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.recommendation.regeneration.quiet-period:2s}")
+    private Duration quietPeriod;
+
+    @Value("${app.recommendation.regeneration.max-delay:10s}")
+    private Duration maxDelay;
+
+    @Value("${app.recommendation.regeneration.workers:4}")
+    private int workers;
+
+    @Value("${app.recommendation.regeneration.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${app.recommendation.regeneration.max-pending-users:100000}")
+    private int maxPendingUsers;
+
+    @Value("${app.recommendation.regeneration.tick-ms:100}")
+    private long tickMillis;
+
+    private record Pending(long sequence, long firstRequestedAt, long lastRequestedAt) {
+    }
+
+    private record Arrival(Long userId, long sequence) {
+    }
+
+    private final ConcurrentHashMap<Long, Pending> pending = new ConcurrentHashMap<>();
+
+    // Pending users in arrival order; entries whose job already ran are skipped lazily
+    private final ConcurrentLinkedQueue<Arrival> arrivals = new ConcurrentLinkedQueue<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    // Replaced in tests
+    private Clock clock = Clock.systemUTC();
+
+    private ScheduledExecutorService ticker;
+    private ThreadPoolExecutor executor;
+
+    private Counter requests;
+    private Counter runs;
+    private Counter dropped;
+
+    @PostConstruct
+    public void init() {
+        requests = Counter.builder("recommendation.regeneration.requests").register(meterRegistry);
+        runs = Counter.builder("recommendation.regeneration.runs").register(meterRegistry);
+        dropped = Counter.builder("recommendation.regeneration.dropped").register(meterRegistry);
+
+        AtomicInteger counter = new AtomicInteger();
+        RejectedExecutionHandler dropOldest = (job, pool) -> {
+            if (!pool.isShutdown()) {
+                pool.getQueue().poll();
+                dropped.increment();
+                pool.execute(job);
+            }
+        };
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread thread = new Thread(r, "recommendation-regen-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, dropOldest);
+
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "recommendation-regen-ticker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleWithFixedDelay(this::dispatchDue, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+
+        Gauge.builder("recommendation.regeneration.pending", pending, Map::size)
+                .description("Users with a pending regeneration")
+                .register(meterRegistry);
+        Gauge.builder("recommendation.regeneration.queue.depth", executor, pool -> pool.getQueue().size())
+                .description("Due regenerations waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("recommendation.regeneration.coalesce.ratio", this, scheduler -> scheduler.coalesceRatio())
+                .description("Share of requests absorbed into another pending job")
+                .register(meterRegistry);
+
+        log.info("Recommendation regeneration: quiet period {}, max delay {}, {} workers", quietPeriod, maxDelay,
+                workers);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+        executor.shutdown();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Ask for the user's recommendations to be regenerated and published soon
+     */
+    public void request(Long userId) {
+        requests.increment();
+        long now = clock.millis();
+        if (!pending.containsKey(userId) && pending.size() >= maxPendingUsers) {
+            dropOldestPending();
+        }
+        Pending created = new Pending(sequence.incrementAndGet(), now, now);
+        Pending merged = pending.merge(userId, created,
+                (current, next) -> new Pending(current.sequence(), current.firstRequestedAt(), now));
+        if (merged == created) {
+            arrivals.offer(new Arrival(userId, created.sequence()));
+        }
+    }
+
+    /**
+     * Hand every due job to the worker pool
+     */
+    private void dispatchDue() {
+        try {
+            long now = clock.millis();
+            long quiet = quietPeriod.toMillis();
+            long max = maxDelay.toMillis();
+            for (Map.Entry<Long, Pending> entry : pending.entrySet()) {
+                Pending job = entry.getValue();
+                boolean due = now - job.lastRequestedAt() >= quiet || now - job.firstRequestedAt() >= max;
+                // Only remove the exact entry we saw; a newer request keeps waiting
+                if (due && pending.remove(entry.getKey(), job)) {
+                    Long userId = entry.getKey();
+                    executor.execute(() -> regenerate(userId));
+                }
+            }
+            // The head is at most max-delay old, which bounds the queue
+            Arrival head;
+            while ((head = arrivals.peek()) != null && !isPending(head)) {
+                // Not poll(): a concurrent drop may already have taken this head
+                arrivals.remove(head);
+            }
+        } catch (Exception e) {
+            log.error("Failed to dispatch recommendation regenerations", e);
+        }
+    }
+
+    private void regenerate(Long userId) {
+        runs.increment();
+        try {
+            recommendationService.regenerateAndPublish(userId);
+        } catch (Exception e) {
+            log.error("Error regenerating recommendations for user {}", userId, e);
+        }
+    }
+
+    private void dropOldestPending() {
+        Arrival arrival;
+        while ((arrival = arrivals.poll()) != null) {
+            Pending job = pending.get(arrival.userId());
+            if (job != null && job.sequence() == arrival.sequence() && pending.remove(arrival.userId(), job)) {
+                dropped.increment();
+                return;
+            }
+        }
+    }
+
+    private boolean isPending(Arrival arrival) {
+        Pending job = pending.get(arrival.userId());
+        return job != null && job.sequence() == arrival.sequence();
+    }
+
+    private double coalesceRatio() {
+        double requested = requests.count();
+        return requested > 0 ? Math.max(0.0, 1.0 - (runs.count() + pending.size()) / requested) : 0.0;
+    }
+}
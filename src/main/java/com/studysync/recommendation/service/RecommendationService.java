@@ -1,24 +1,30 @@
 package com.studysync.recommendation.service;
 
+import com.studysync.recommendation.dto.HydratedRecommendation;
 import com.studysync.recommendation.dto.PostRecommendationEvent;
+import com.studysync.recommendation.grpc.PostResponse;
+import com.studysync.recommendation.dto.RecommendationPage;
 import com.studysync.recommendation.kafka.EventProducer;
 import com.studysync.recommendation.model.PostScore;
 import com.studysync.recommendation.model.UserInteraction;
 import com.studysync.recommendation.model.UserPreference;
 import com.studysync.recommendation.repository.PostScoreRepository;
+import com.studysync.recommendation.repository.PostInteractionDailyRollupRepository;
+import com.studysync.recommendation.repository.UserInteractionDailyRollupRepository;
 import com.studysync.recommendation.repository.UserInteractionRepository;
 import com.studysync.recommendation.repository.UserPreferenceRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 @Service
@@ -28,109 +34,297 @@ public class RecommendationService {
 
     private final UserInteractionRepository interactionRepository;
     private final PostScoreRepository postScoreRepository;
+    private final PostScoreService postScoreService;
     private final UserPreferenceRepository userPreferenceRepository;
     private final EventProducer eventProducer;
-
-    @Value("${app.recommendation.time-decay-factor}")
-    private Double timeDecayFactor;
+    private final EngagementCounterAggregator engagementAggregator;
+    private final UserInteractionDailyRollupRepository userRollupRepository;
+    private final PostInteractionDailyRollupRepository postRollupRepository;
+    private final SeenPostsService seenPostsService;
+    private final CandidateGenerator candidateGenerator;
+    private final ScoringKernel scoringKernel;
+    private final RecommendationCache recommendationCache;
+    private final RecommendationPager recommendationPager;
+    private final PostDetailCache postDetailCache;
+    private final TrendingService trendingService;
 
     @Value("${app.recommendation.max-recommendations}")
     private Integer maxRecommendations;
 
-    @Cacheable(value = "recommendations", key = "#userId")
+    @Value("${app.trending.fallback-days:7}")
+    private int trendingFallbackDays;
+
+    @Value("${app.recommendation.batch.query-chunk-size:1000}")
+    private int batchQueryChunkSize;
+
+    /**
+     * Cached recommendations; concurrent misses for the same user share one
+     * computation and stale entries are refreshed in the background
+     */
     public List<PostRecommendationEvent.RecommendedPost> getRecommendationsForUser(Long userId) {
+        return recommendationCache.get(userId, this::generateRecommendations);
+    }
+
+    private List<PostRecommendationEvent.RecommendedPost> generateRecommendations(Long userId) {
         log.info("Generating recommendations for user {}", userId);
 
         // Get user preferences
         List<UserPreference> preferences = userPreferenceRepository.findTopPreferencesByUser(userId);
 
         // Get posts the user has already interacted with
-        List<Long> interactedPostIds = interactionRepository.findInteractedPostIdsByUserAndTypes(
-                userId,
-                Arrays.asList(UserInteraction.InteractionType.LIKE,
-                        UserInteraction.InteractionType.VIEW,
-                        UserInteraction.InteractionType.COMMENT));
-
-        // Get top scoring posts
-        List<PostScore> topPosts = postScoreRepository.findTopScoringPosts(
-                PageRequest.of(0, maxRecommendations * 2));
-
-        // Filter out already interacted posts and calculate personalized scores
-        List<PostRecommendationEvent.RecommendedPost> recommendations = topPosts.stream()
-                .filter(post -> !interactedPostIds.contains(post.getPostId()))
-                .map(post -> calculatePersonalizedScore(post, preferences))
-                .sorted(Comparator.comparingDouble(PostRecommendationEvent.RecommendedPost::getScore).reversed())
-                .limit(maxRecommendations)
-                .collect(Collectors.toList());
+        Roaring64NavigableMap seenPostIds = seenPostsService.getSeenPosts(userId);
+
+        // Candidates from the user's top categories, merged with the global ranking
+        List<CandidateGenerator.Candidate> candidates = candidateGenerator.generate(
+                preferences, seenPostIds, maxRecommendations * 2);
+
+        List<PostScore> posts = postScoreRepository.findByPostIds(candidates.stream()
+                .map(CandidateGenerator.Candidate::postId)
+                .collect(Collectors.toList()));
+
+        List<PostRecommendationEvent.RecommendedPost> recommendations = rankPosts(posts,
+                preferenceScores(preferences), maxRecommendations);
 
         log.info("Generated {} recommendations for user {}", recommendations.size(), userId);
         return recommendations;
     }
 
+    /**
+     * Recommendations with post details (title, author, counts) resolved from
+     * the shared post detail cache. Posts the backend no longer knows are
+     * dropped; if it cannot be reached, posts are returned without details.
+     */
+    public List<HydratedRecommendation> getHydratedRecommendationsForUser(Long userId) {
+        List<PostRecommendationEvent.RecommendedPost> recommendations = getRecommendationsForUser(userId);
+        Map<Long, Optional<PostResponse>> details = postDetailCache.getDetails(recommendations.stream()
+                .map(PostRecommendationEvent.RecommendedPost::getPostId)
+                .collect(Collectors.toList()));
+
+        List<HydratedRecommendation> hydrated = new ArrayList<>(recommendations.size());
+        for (PostRecommendationEvent.RecommendedPost recommendation : recommendations) {
+            Optional<PostResponse> detail = details.get(recommendation.getPostId());
+            if (detail != null && detail.isEmpty()) {
+                continue;
+            }
+            hydrated.add(hydrate(recommendation, detail != null ? detail.get() : null));
+        }
+        return hydrated;
+    }
+
+    private static HydratedRecommendation hydrate(PostRecommendationEvent.RecommendedPost recommendation,
+            PostResponse post) {
+        HydratedRecommendation.HydratedRecommendationBuilder builder = HydratedRecommendation.builder()
+                .postId(recommendation.getPostId())
+                .score(recommendation.getScore())
+                .reason(recommendation.getReason())
+                .categories(recommendation.getCategories());
+        if (post != null) {
+            builder.title(post.getTitle())
+                    .authorId(post.getAuthorId())
+                    .authorName(post.getAuthorName())
+                    .createdAt(post.getCreatedAt())
+                    .tags(new ArrayList<>(post.getTagsList()))
+                    .likeCount(post.getLikeCount())
+                    .commentCount(post.getCommentCount())
+                    .viewCount(post.getViewCount());
+        }
+        return builder.build();
+    }
+
+    /**
+     * One page of recommendations for infinite scroll. Pages follow the
+     * candidate rankings by total score; within a page posts are ordered by
+     * their final score. Pass the returned cursor to get the next page.
+     *
+     * @throws IllegalArgumentException if the cursor is invalid
+     */
+    public RecommendationPage getRecommendationPage(Long userId, String cursor, int size) {
+        List<UserPreference> preferences = userPreferenceRepository.findTopPreferencesByUser(userId);
+        Roaring64NavigableMap seenPostIds = seenPostsService.getSeenPosts(userId);
+
+        RecommendationPager.Page page = recommendationPager.nextPage(preferences, seenPostIds, cursor, size);
+        return RecommendationPage.builder()
+                .recommendations(rankPosts(page.posts(), preferenceScores(preferences), page.posts().size()))
+                .nextCursor(page.nextCursor())
+                .build();
+    }
+
+    /**
+     * Recommendations for many users at once, e.g. for digests. Rankings and
+     * candidate post rows are read once for the whole batch, preferences and
+     * seen posts with bulk queries, and users are then scored in parallel.
+     */
+    public Map<Long, List<PostRecommendationEvent.RecommendedPost>> getRecommendationsForUsers(
+            Collection<Long> userIds) {
+        List<Long> ids = List.copyOf(new LinkedHashSet<>(userIds));
+        long started = System.currentTimeMillis();
+
+        Map<Long, List<UserPreference>> preferencesByUser = new HashMap<>(ids.size() * 2);
+        for (int from = 0; from < ids.size(); from += batchQueryChunkSize) {
+            List<Long> chunk = ids.subList(from, Math.min(from + batchQueryChunkSize, ids.size()));
+            userPreferenceRepository.findTopPreferencesByUsers(chunk).forEach(preference -> preferencesByUser
+                    .computeIfAbsent(preference.getUserId(), id -> new ArrayList<>())
+                    .add(preference));
+        }
+
+        Map<Long, Roaring64NavigableMap> seenByUser = seenPostsService.getSeenPosts(ids);
+
+        int candidateLimit = maxRecommendations * 2;
+        Map<String, List<PostScoreService.RankedPost>> rankings = candidateGenerator.fetchRankings(
+                preferencesByUser.values(), candidateLimit);
+
+        List<Long> postIds = rankings.values().stream()
+                .flatMap(List::stream)
+                .map(PostScoreService.RankedPost::postId)
+                .distinct()
+                .collect(Collectors.toList());
+        Map<Long, PostScore> postsById = new HashMap<>(postIds.size() * 2);
+        for (int from = 0; from < postIds.size(); from += batchQueryChunkSize) {
+            postScoreRepository.findByPostIds(postIds.subList(from, Math.min(from + batchQueryChunkSize, postIds.size())))
+                    .forEach(post -> postsById.put(post.getPostId(), post));
+        }
+
+        Map<Long, List<PostRecommendationEvent.RecommendedPost>> scored = new ConcurrentHashMap<>(ids.size() * 2);
+        ids.parallelStream().forEach(userId -> {
+            List<UserPreference> preferences = preferencesByUser.getOrDefault(userId, List.of());
+            Roaring64NavigableMap seen = seenByUser.getOrDefault(userId, new Roaring64NavigableMap());
+
+            List<PostScore> posts = candidateGenerator.generate(preferences, seen, candidateLimit, rankings).stream()
+                    .map(candidate -> postsById.get(candidate.postId()))
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+            scored.put(userId, rankPosts(posts, preferenceScores(preferences), maxRecommendations));
+        });
+
+        Map<Long, List<PostRecommendationEvent.RecommendedPost>> recommendations = new LinkedHashMap<>(ids.size() * 2);
+        ids.forEach(userId -> recommendations.put(userId, scored.get(userId)));
+
+        log.info("Generated recommendations for {} users from {} rankings ({} posts) in {} ms",
+                ids.size(), rankings.size(), postsById.size(), System.currentTimeMillis() - started);
+        return recommendations;
+    }
+
     @Async
     public void generateAndPublishRecommendations(Long userId) {
         try {
-            List<PostRecommendationEvent.RecommendedPost> recommendations = getRecommendationsForUser(userId);
-
-            PostRecommendationEvent event = PostRecommendationEvent.builder()
-                    .userId(userId)
-                    .recommendations(recommendations)
-                    .algorithm("collaborative-content-hybrid")
-                    .generatedAt(LocalDateTime.now())
-                    .build();
-
-            eventProducer.sendRecommendationEvent(event);
+            regenerateAndPublish(userId);
         } catch (Exception e) {
             log.error("Error generating recommendations for user {}", userId, e);
         }
     }
 
-    private PostRecommendationEvent.RecommendedPost calculatePersonalizedScore(
-            PostScore postScore,
-            List<UserPreference> userPreferences) {
+    /**
+     * Generate the user's recommendations on the calling thread and publish
+     * them; used by the regeneration scheduler's workers
+     */
+    public void regenerateAndPublish(Long userId) {
+        publish(userId, getRecommendationsForUser(userId));
+    }
 
-        double baseScore = postScore.getTotalScore();
+    /**
+     * Compute recommendations for a chunk of users with shared candidate data,
+     * write them to the recommendation cache as fresh entries and publish them
+     */
+    public void precomputeRecommendations(Collection<Long> userIds) {
+        // Read before computing, so a user who interacts meanwhile is not cached stale
+        Map<Long, Long> generations = new HashMap<>();
+        userIds.forEach(userId -> generations.put(userId, recommendationCache.generation(userId)));
+
+        getRecommendationsForUsers(userIds).forEach((userId, recommendations) -> {
+            recommendationCache.put(userId, recommendations, generations.getOrDefault(userId, -1L));
+            publish(userId, recommendations);
+        });
+    }
 
-        // Apply time decay
-        long daysSinceCreated = ChronoUnit.DAYS.between(
-                postScore.getCreatedAt(),
-                LocalDateTime.now());
-        double timeDecay = Math.pow(timeDecayFactor, daysSinceCreated);
+    private void publish(Long userId, List<PostRecommendationEvent.RecommendedPost> recommendations) {
+        PostRecommendationEvent event = PostRecommendationEvent.builder()
+                .userId(userId)
+                .recommendations(recommendations)
+                .algorithm("collaborative-content-hybrid")
+                .generatedAt(LocalDateTime.now())
+                .build();
 
-        // Apply user preference boost (assuming metadata contains category)
-        double preferenceBoost = 1.0;
-        String reason = "Popular post";
-        List<String> categories = new ArrayList<>();
+        eventProducer.sendRecommendationEvent(event);
+    }
 
-        // In a real implementation, you would fetch post categories from a post service
-        // For now, we'll use a simplified version
+    /**
+     * Rank posts by base score x time decay x preference boost and return the
+     * top {@code limit}. Scoring runs over primitive arrays; objects are only
+     * created for the winners.
+     */
+    private List<PostRecommendationEvent.RecommendedPost> rankPosts(
+            List<PostScore> posts,
+            Map<String, Double> preferenceScores,
+            int limit) {
+
+        int count = posts.size();
+        double[] baseScores = new double[count];
+        long[] createdEpochDays = new long[count];
+        double[] boosts = new double[count];
+
+        for (int i = 0; i < count; i++) {
+            PostScore post = posts.get(i);
+            baseScores[i] = post.getTotalScore();
+            createdEpochDays[i] = post.getCreatedAt().toLocalDate().toEpochDay();
+            boosts[i] = 1.0 + preferenceBoost(post.getCategory(), preferenceScores);
+        }
+
+        ScoringKernel.TopK top = scoringKernel.topK(baseScores, createdEpochDays, boosts, count,
+                limit, LocalDate.now().toEpochDay());
+
+        List<PostRecommendationEvent.RecommendedPost> recommendations = new ArrayList<>(top.size());
+        for (int rank = 0; rank < top.size(); rank++) {
+            PostScore post = posts.get(top.indexes()[rank]);
+            String category = post.getCategory();
+            boolean preferred = preferenceBoost(category, preferenceScores) > 0;
+
+            recommendations.add(PostRecommendationEvent.RecommendedPost.builder()
+                    .postId(post.getPostId())
+                    .score(top.scores()[rank])
+                    .reason(preferred ? "Matches your interest in " + category : "Popular post")
+                    .categories(category != null ? new ArrayList<>(List.of(category)) : new ArrayList<>())
+                    .build());
+        }
+        return recommendations;
+    }
 
-        double finalScore = baseScore * timeDecay * preferenceBoost;
+    private static Map<String, Double> preferenceScores(List<UserPreference> preferences) {
+        return preferences.stream()
+                .collect(Collectors.toMap(UserPreference::getCategory, UserPreference::getPreferenceScore,
+                        (a, b) -> a));
+    }
 
-        return PostRecommendationEvent.RecommendedPost.builder()
-                .postId(postScore.getPostId())
-                .score(finalScore)
-                .reason(reason)
-                .categories(categories)
-                .build();
+    private static double preferenceBoost(String category, Map<String, Double> preferenceScores) {
+        if (category == null) {
+            return 0.0;
+        }
+        Double preference = preferenceScores.get(category);
+        return preference != null && preference > 0 ? preference : 0.0;
     }
 
+    /**
+     * Interaction totals for a user: rolled-up history plus raw rows still in
+     * the hot partitions. Both are aggregated in the database.
+     */
     public Map<String, Object> getUserInteractionStats(Long userId) {
-        List<UserInteraction> interactions = interactionRepository.findByUserId(userId);
-
-        Map<String, Long> interactionCounts = interactions.stream()
-                .collect(Collectors.groupingBy(
-                        i -> i.getInteractionType().name(),
-                        Collectors.counting()));
+        Map<String, Long> interactionCounts = new HashMap<>();
+        LocalDateTime lastInteraction = null;
+
+        List<Object[]> summaries = new ArrayList<>(userRollupRepository.summarizeByUser(userId));
+        summaries.addAll(interactionRepository.summarizeByUser(userId));
+        for (Object[] row : summaries) {
+            String type = ((UserInteraction.InteractionType) row[0]).name();
+            interactionCounts.merge(type, ((Number) row[1]).longValue(), Long::sum);
+            LocalDateTime last = (LocalDateTime) row[2];
+            if (last != null && (lastInteraction == null || last.isAfter(lastInteraction))) {
+                lastInteraction = last;
+            }
+        }
 
         Map<String, Object> stats = new HashMap<>();
-        stats.put("totalInteractions", interactions.size());
+        stats.put("totalInteractions", interactionCounts.values().stream().mapToLong(Long::longValue).sum());
         stats.put("interactionBreakdown", interactionCounts);
-        stats.put("lastInteraction", interactions.isEmpty() ? null
-                : interactions.stream()
-                        .map(UserInteraction::getTimestamp)
-                        .max(LocalDateTime::compareTo)
-                        .orElse(null));
+        stats.put("lastInteraction", lastInteraction);
 
         return stats;
     }
@@ -138,36 +332,74 @@ public class RecommendationService {
     public Map<String, Object> getPostEngagementStats(Long postId) {
         Optional<PostScore> postScoreOpt = postScoreRepository.findByPostId(postId);
 
-        if (postScoreOpt.isEmpty()) {
+        // Include deltas still buffered by the write-behind aggregator
+        EngagementDelta pending = engagementAggregator.getPendingDelta(postId);
+
+        if (postScoreOpt.isEmpty() && pending.isEmpty()) {
             return Map.of("postId", postId, "engagement", "No data available");
         }
 
-        PostScore postScore = postScoreOpt.get();
+        int likes = Math.max(0, postScoreOpt.map(PostScore::getLikeCount).orElse(0) + pending.getLikes());
+        int comments = postScoreOpt.map(PostScore::getCommentCount).orElse(0) + pending.getComments();
+        int shares = postScoreOpt.map(PostScore::getShareCount).orElse(0) + pending.getShares();
+        int views = postScoreOpt.map(PostScore::getViewCount).orElse(0) + pending.getViews();
+        int bookmarks = postScoreOpt.map(PostScore::getBookmarkCount).orElse(0) + pending.getBookmarks();
+
         Map<String, Object> stats = new HashMap<>();
         stats.put("postId", postId);
-        stats.put("totalScore", postScore.getTotalScore());
-        stats.put("likes", postScore.getLikeCount());
-        stats.put("comments", postScore.getCommentCount());
-        stats.put("shares", postScore.getShareCount());
-        stats.put("views", postScore.getViewCount());
-        stats.put("bookmarks", postScore.getBookmarkCount());
-        stats.put("lastUpdated", postScore.getLastUpdated());
+        stats.put("likes", likes);
+        stats.put("comments", comments);
+        stats.put("shares", shares);
+        stats.put("views", views);
+        stats.put("bookmarks", bookmarks);
+        // Same formula as the stored score, so it agrees with the counts above
+        stats.put("totalScore", pending.isEmpty()
+                ? postScoreOpt.map(PostScore::getTotalScore).orElse(0.0)
+                : postScoreService.totalScore(likes, comments, shares, views, bookmarks));
+        stats.put("lastUpdated", postScoreOpt.map(PostScore::getLastUpdated).orElse(null));
+        Map<String, Long> interactionCounts = getPostInteractionCounts(postId);
+        stats.put("totalInteractions", interactionCounts.values().stream().mapToLong(Long::longValue).sum());
+        stats.put("interactionBreakdown", interactionCounts);
+        stats.put("pendingWrites", !pending.isEmpty());
 
         return stats;
     }
 
-    public List<PostScore> getTrendingPosts(int limit) {
-        // Get recent posts with high engagement
-        List<PostScore> topPosts = postScoreRepository.findTopScoringPosts(
-                PageRequest.of(0, limit));
+    /**
+     * Interaction totals for a post: rolled-up history plus raw rows still in
+     * the hot partitions, so compacted days are not lost
+     */
+    private Map<String, Long> getPostInteractionCounts(Long postId) {
+        Map<String, Long> interactionCounts = new HashMap<>();
+        List<Object[]> summaries = new ArrayList<>(postRollupRepository.summarizeByPost(postId));
+        summaries.addAll(interactionRepository.summarizeByPost(postId));
+        for (Object[] row : summaries) {
+            String type = ((UserInteraction.InteractionType) row[0]).name();
+            interactionCounts.merge(type, ((Number) row[1]).longValue(), Long::sum);
+        }
+        return interactionCounts;
+    }
+
+    /**
+     * Posts with the highest engagement velocity over the trending window,
+     * optionally within one category. Falls back to the best-ranked recent
+     * posts when there has been no activity in the window.
+     */
+    public List<PostScore> getTrendingPosts(String category, int limit) {
+        List<Long> trending = trendingService.getTrending(category, limit);
+        if (trending.isEmpty()) {
+            LocalDateTime since = LocalDateTime.now().minusDays(trendingFallbackDays);
+            return category == null
+                    ? postScoreRepository.findTopScoringPostsSince(since, PageRequest.of(0, limit))
+                    : postScoreRepository.findTopScoringPostsByCategorySince(category, since,
+                            PageRequest.of(0, limit));
+        }
 
-        return topPosts.stream()
-                .filter(post -> {
-                    long daysSinceCreated = ChronoUnit.DAYS.between(
-                            post.getCreatedAt(),
-                            LocalDateTime.now());
-                    return daysSinceCreated <= 7; // Only posts from last 7 days
-                })
+        Map<Long, PostScore> postsById = postScoreRepository.findByPostIds(trending).stream()
+                .collect(Collectors.toMap(PostScore::getPostId, post -> post));
+        return trending.stream()
+                .map(postsById::get)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
     }
 }
@@ -0,0 +1,143 @@
+package com.studysync.recommendation.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Top-K ranking over parallel primitive arrays.
+ *
+ * score = baseScore * decay(ageInDays) * boost, where decay comes from a
+ * precomputed table of timeDecayFactor^days. Only K entries are kept, in a
+ * bounded min-heap, and nothing is allocated per candidate; callers create
+ * objects for the returned winners only.
+ */
+@Component
+@Slf4j
+public class ScoringKernel {
+
+    @Value("${app.recommendation.time-decay-factor}")
+    private double timeDecayFactor;
+
+    @Value("${app.recommendation.decay-table-days:3650}")
+    private int decayTableDays;
+
+    private double[] decayTable;
+
+    /**
+     * Winners as indexes into the input arrays, best first
+     */
+    public record TopK(int[] indexes, double[] scores) {
+        public int size() {
+            return indexes.length;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        decayTable = new double[decayTableDays + 1];
+        double decay = 1.0;
+        for (int day = 0; day <= decayTableDays; day++) {
+            decayTable[day] = decay;
+            decay *= timeDecayFactor;
+        }
+        log.debug("Scoring kernel decay table: {} days, factor {}", decayTableDays, timeDecayFactor);
+    }
+
+    /**
+     * Decay multiplier for a post of the given age; future dates count as age 0
+     */
+    public double decay(long ageDays) {
+        if (ageDays <= 0) {
+            return 1.0;
+        }
+        return ageDays < decayTable.length ? decayTable[(int) ageDays] : decayTable[decayTable.length - 1];
+    }
+
+    /**
+     * Select the K best of the first {@code count} candidates.
+     *
+     * @param baseScores       base score per candidate
+     * @param createdEpochDays creation date per candidate, as epoch days
+     * @param boosts           multiplier per candidate, or null for none
+     * @param todayEpochDay    current date as an epoch day
+     */
+    public TopK topK(double[] baseScores, long[] createdEpochDays, double[] boosts, int count, int k,
+            long todayEpochDay) {
+        int capacity = Math.min(k, count);
+        int[] heap = new int[capacity];
+        double[] heapScores = new double[capacity];
+        int size = 0;
+
+        for (int i = 0; i < count; i++) {
+            double score = baseScores[i] * decay(todayEpochDay - createdEpochDays[i]);
+            if (boosts != null) {
+                score *= boosts[i];
+            }
+
+            if (size < capacity) {
+                heap[size] = i;
+                heapScores[size] = score;
+                siftUp(heap, heapScores, size++);
+            } else if (capacity > 0 && score > heapScores[0]) {
+                heap[0] = i;
+                heapScores[0] = score;
+                siftDown(heap, heapScores, size);
+            }
+        }
+
+        // Drain the min-heap from the back so the best ends up first
+        int[] indexes = new int[size];
+        double[] scores = new double[size];
+        for (int last = size - 1; last >= 0; last--) {
+            indexes[last] = heap[0];
+            scores[last] = heapScores[0];
+            heap[0] = heap[last];
+            heapScores[0] = heapScores[last];
+            siftDown(heap, heapScores, last);
+        }
+        return new TopK(indexes, scores);
+    }
+
+    private static void siftUp(int[] heap, double[] scores, int position) {
+        int index = heap[position];
+        double score = scores[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (scores[parent] <= score) {
+                break;
+            }
+            heap[position] = heap[parent];
+            scores[position] = scores[parent];
+            position = parent;
+        }
+        heap[position] = index;
+        scores[position] = score;
+    }
+
+    private static void siftDown(int[] heap, double[] scores, int size) {
+        if (size == 0) {
+            return;
+        }
+        int index = heap[0];
+        double score = scores[0];
+        int position = 0;
+        int half = size >>> 1;
+        while (position < half) {
+            int child = 2 * position + 1;
+            int right = child + 1;
+            if (right < size && scores[right] < scores[child]) {
+                child = right;
+            }
+            if (score <= scores[child]) {
+                break;
+            }
+            heap[position] = heap[child];
+            scores[position] = scores[child];
+            position = child;
+        }
+        heap[position] = index;
+        scores[position] = score;
+    }
+}
@@ -0,0 +1,271 @@
+package com.studysync.recommendation.service;
+
+import com.studysync.recommendation.model.UserInteraction;
+import com.studysync.recommendation.repository.UserInteractionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Per-user set of posts the user has already seen (liked, viewed or commented),
+ * used to filter recommendation candidates.
+ *
+ * Stored in Redis as a serialized roaring bitmap ({@code seen_posts:{userId}})
+ * plus a small set of recent additions ({@code seen_posts:{userId}:delta}).
+ * The ingest path only SADDs to the delta; reads merge both and fold the delta
+ * into the bitmap once it grows past a threshold. A user's bitmap is built
+ * from the interaction table once, the first time it is read. Several users
+ * can be read at once for batch recommendation. Both keys expire together
+ * once a user stops interacting; the bitmap is rebuilt on the next read.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SeenPostsService {
+
+    public static final Set<UserInteraction.InteractionType> SEEN_TYPES = EnumSet.of(
+            UserInteraction.InteractionType.LIKE,
+            UserInteraction.InteractionType.VIEW,
+            UserInteraction.InteractionType.COMMENT);
+
+    private static final String KEY_PREFIX = "seen_posts:";
+    private static final String DELTA_SUFFIX = ":delta";
+    private static final int BOOTSTRAP_CHUNK_SIZE = 1000;
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final UserInteractionRepository interactionRepository;
+
+    @Value("${app.recommendation.seen-posts.compaction-threshold:256}")
+    private int compactionThreshold;
+
+    @Value("${app.recommendation.seen-posts.ttl:7d}")
+    private Duration ttl;
+
+    /**
+     * Record seen posts per user once the current transaction (if any) commits
+     */
+    public void markSeen(Map<Long, ? extends Collection<Long>> postIdsByUser) {
+        if (postIdsByUser.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    writeSeen(postIdsByUser);
+                }
+            });
+        } else {
+            writeSeen(postIdsByUser);
+        }
+    }
+
+    /**
+     * Load the user's seen posts; membership checks are O(1)
+     */
+    public Roaring64NavigableMap getSeenPosts(Long userId) {
+        return getSeenPosts(List.of(userId)).get(userId);
+    }
+
+    /**
+     * Load the seen posts of several users in one pipelined round trip. Users
+     * without a bitmap yet are bootstrapped together with bulk queries.
+     */
+    public Map<Long, Roaring64NavigableMap> getSeenPosts(Collection<Long> userIds) {
+        List<Long> ids = List.copyOf(new LinkedHashSet<>(userIds));
+        Map<Long, Roaring64NavigableMap> seenByUser = new HashMap<>(ids.size() * 2);
+
+        try {
+            List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (Long userId : ids) {
+                    connection.stringCommands().get(bytes(bitmapKey(userId)));
+                    connection.setCommands().sMembers(bytes(deltaKey(userId)));
+                }
+                return null;
+            }, RedisSerializer.byteArray());
+
+            List<Long> missing = new ArrayList<>();
+            for (int i = 0; i < ids.size(); i++) {
+                Long userId = ids.get(i);
+                byte[] serialized = (byte[]) results.get(2 * i);
+                @SuppressWarnings("unchecked")
+                Set<byte[]> delta = (Set<byte[]>) results.get(2 * i + 1);
+
+                Roaring64NavigableMap seen;
+                if (serialized != null) {
+                    seen = deserialize(serialized);
+                } else {
+                    seen = new Roaring64NavigableMap();
+                    missing.add(userId);
+                }
+                if (delta != null) {
+                    delta.forEach(postId -> seen.addLong(parsePostId(postId)));
+                    if (serialized != null && delta.size() >= compactionThreshold) {
+                        compact(userId);
+                    }
+                }
+                seenByUser.put(userId, seen);
+            }
+
+            if (!missing.isEmpty()) {
+                bootstrap(missing, seenByUser);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to load seen posts for {} users: {}", ids.size(), e.getMessage());
+            ids.forEach(userId -> seenByUser.putIfAbsent(userId, new Roaring64NavigableMap()));
+        }
+        return seenByUser;
+    }
+
+    private void writeSeen(Map<Long, ? extends Collection<Long>> postIdsByUser) {
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                postIdsByUser.forEach((userId, postIds) -> {
+                    if (!postIds.isEmpty()) {
+                        byte[][] members = postIds.stream()
+                                .map(postId -> bytes(String.valueOf(postId)))
+                                .toArray(byte[][]::new);
+                        connection.setCommands().sAdd(bytes(deltaKey(userId)), members);
+                        expire(connection, userId);
+                    }
+                });
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("Failed to record seen posts for {} users: {}", postIdsByUser.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Build bitmaps from the interaction table and merge them into the given
+     * results. Runs once per user; SETNX keeps a concurrent build or compaction
+     * from being overwritten.
+     */
+    private void bootstrap(List<Long> userIds, Map<Long, Roaring64NavigableMap> seenByUser) throws IOException {
+        Map<Long, Roaring64NavigableMap> loaded = new HashMap<>(userIds.size() * 2);
+        userIds.forEach(userId -> loaded.put(userId, new Roaring64NavigableMap()));
+        for (int from = 0; from < userIds.size(); from += BOOTSTRAP_CHUNK_SIZE) {
+            List<Long> chunk = userIds.subList(from, Math.min(from + BOOTSTRAP_CHUNK_SIZE, userIds.size()));
+            interactionRepository.findInteractedPostIdsByUsersAndTypes(chunk, List.copyOf(SEEN_TYPES))
+                    .forEach(row -> loaded.get((Long) row[0]).addLong((Long) row[1]));
+        }
+
+        Map<byte[], byte[]> serialized = new HashMap<>(userIds.size() * 2);
+        for (Map.Entry<Long, Roaring64NavigableMap> entry : loaded.entrySet()) {
+            serialized.put(bytes(bitmapKey(entry.getKey())), serialize(entry.getValue()));
+        }
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            serialized.forEach((key, value) -> connection.stringCommands().setNX(key, value));
+            userIds.forEach(userId -> expire(connection, userId));
+            return null;
+        });
+
+        loaded.forEach((userId, seen) -> seenByUser.get(userId).or(seen));
+        log.debug("Bootstrapped seen posts for {} users", userIds.size());
+    }
+
+    /**
+     * Fold the delta set into the bitmap. WATCH makes a concurrent compaction
+     * abort this one instead of losing its members.
+     */
+    private void compact(Long userId) {
+        byte[] key = bytes(bitmapKey(userId));
+        byte[] deltaKey = bytes(deltaKey(userId));
+
+        try {
+            redisTemplate.execute((RedisCallback<Object>) connection -> {
+                connection.watch(key);
+                byte[] serialized = connection.stringCommands().get(key);
+                Set<byte[]> delta = connection.setCommands().sMembers(deltaKey);
+                if (serialized == null || delta == null || delta.isEmpty()) {
+                    connection.unwatch();
+                    return null;
+                }
+
+                Roaring64NavigableMap seen;
+                try {
+                    seen = deserialize(serialized);
+                    delta.forEach(postId -> seen.addLong(parsePostId(postId)));
+                    serialized = serialize(seen);
+                } catch (IOException e) {
+                    connection.unwatch();
+                    throw new IllegalStateException("Corrupt seen-posts bitmap for user " + userId, e);
+                }
+
+                connection.multi();
+                connection.stringCommands().set(key, serialized);
+                connection.setCommands().sRem(deltaKey, delta.toArray(byte[][]::new));
+                expire(connection, userId);
+                List<Object> committed = connection.exec();
+                log.debug("Compacted seen posts for user {}: {} ({} delta entries)", userId,
+                        committed != null && !committed.isEmpty() ? "done" : "skipped", delta.size());
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("Failed to compact seen posts for user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    /**
+     * Refresh the TTL of both keys. The bitmap goes first, so it never
+     * outlives the delta: entries only in the delta would otherwise be lost
+     * (a present bitmap is not rebuilt).
+     */
+    private void expire(RedisConnection connection, Long userId) {
+        connection.keyCommands().expire(bytes(bitmapKey(userId)), ttl.toSeconds());
+        connection.keyCommands().expire(bytes(deltaKey(userId)), ttl.toSeconds());
+    }
+
+    private static Roaring64NavigableMap deserialize(byte[] serialized) throws IOException {
+        Roaring64NavigableMap seen = new Roaring64NavigableMap();
+        seen.deserializePortable(new DataInputStream(new ByteArrayInputStream(serialized)));
+        return seen;
+    }
+
+    private static byte[] serialize(Roaring64NavigableMap seen) throws IOException {
+        seen.runOptimize();
+        ByteArrayOutputStream out = new ByteArrayOutputStream((int) seen.serializedSizeInBytes());
+        seen.serializePortable(new DataOutputStream(out));
+        return out.toByteArray();
+    }
+
+    private static long parsePostId(byte[] member) {
+        return Long.parseLong(new String(member, StandardCharsets.UTF_8));
+    }
+
+    private static String bitmapKey(Long userId) {
+        return KEY_PREFIX + userId;
+    }
+
+    private static String deltaKey(Long userId) {
+        return KEY_PREFIX + userId + DELTA_SUFFIX;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,239 @@
+package com.studysync.recommendation.service;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Weighted Space-Saving heavy-hitter sketch over long items.
+ *
+ * Tracks at most {@code capacity} items in an indexed min-heap. An untracked
+ * item replaces the current minimum and inherits its count as error, so a
+ * count never underestimates and overestimates by at most its error (bounded
+ * by total weight / capacity). Offers are O(log capacity). Not thread safe.
+ *
+ * Sketches are mergeable: an item missing from a full sketch is credited with
+ * that sketch's minimum, which keeps the overestimate guarantee, and the top
+ * {@code capacity} of the combined counts are kept.
+ */
+class SpaceSavingSketch {
+
+    /**
+     * A tracked item; the true count lies in [count - error, count]
+     */
+    record Counter(long item, double count, double error) {
+    }
+
+    private final int capacity;
+    private final long[] items;
+    private final double[] counts;
+    private final double[] errors;
+    private final Map<Long, Integer> positions;
+    private int size;
+
+    SpaceSavingSketch(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Sketch capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.items = new long[capacity];
+        this.counts = new double[capacity];
+        this.errors = new double[capacity];
+        this.positions = new HashMap<>(capacity * 2);
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void offer(long item, double weight) {
+        if (weight <= 0) {
+            return;
+        }
+        Integer position = positions.get(item);
+        if (position != null) {
+            counts[position] += weight;
+            siftDown(position);
+        } else if (size < capacity) {
+            place(size, item, weight, 0.0);
+            siftUp(size++);
+        } else {
+            double min = counts[0];
+            positions.remove(items[0]);
+            place(0, item, min + weight, min);
+            siftDown(0);
+        }
+    }
+
+    void remove(long item) {
+        Integer position = positions.remove(item);
+        if (position == null) {
+            return;
+        }
+        int last = --size;
+        if (position != last) {
+            place(position, items[last], counts[last], errors[last]);
+            siftDown(position);
+            siftUp(position);
+        }
+    }
+
+    /**
+     * Multiply every count and error, e.g. to move to a later decay landmark
+     */
+    void scale(double factor) {
+        for (int i = 0; i < size; i++) {
+            counts[i] *= factor;
+            errors[i] *= factor;
+        }
+    }
+
+    /**
+     * Count credited to an untracked item: the minimum once full, else zero
+     */
+    double floor() {
+        return size < capacity ? 0.0 : counts[0];
+    }
+
+    /**
+     * Tracked items, highest count first
+     */
+    List<Counter> top(int limit) {
+        List<Counter> counters = counters();
+        counters.sort(Comparator.comparingDouble(Counter::count).reversed());
+        return counters.size() > limit ? new ArrayList<>(counters.subList(0, limit)) : counters;
+    }
+
+    SpaceSavingSketch copy() {
+        SpaceSavingSketch copy = new SpaceSavingSketch(capacity);
+        for (int i = 0; i < size; i++) {
+            copy.place(i, items[i], counts[i], errors[i]);
+        }
+        copy.size = size;
+        return copy;
+    }
+
+    /**
+     * Combine sketches into one of the given capacity
+     */
+    static SpaceSavingSketch merge(List<SpaceSavingSketch> sketches, int capacity) {
+        Map<Long, double[]> combined = new LinkedHashMap<>();
+        for (SpaceSavingSketch sketch : sketches) {
+            for (int i = 0; i < sketch.size; i++) {
+                combined.computeIfAbsent(sketch.items[i], item -> new double[2]);
+            }
+        }
+        for (SpaceSavingSketch sketch : sketches) {
+            double floor = sketch.floor();
+            for (Map.Entry<Long, double[]> entry : combined.entrySet()) {
+                Integer position = sketch.positions.get(entry.getKey());
+                entry.getValue()[0] += position != null ? sketch.counts[position] : floor;
+                entry.getValue()[1] += position != null ? sketch.errors[position] : floor;
+            }
+        }
+
+        List<Counter> counters = new ArrayList<>(combined.size());
+        combined.forEach((item, value) -> counters.add(new Counter(item, value[0], value[1])));
+        counters.sort(Comparator.comparingDouble(Counter::count).reversed());
+
+        SpaceSavingSketch merged = new SpaceSavingSketch(capacity);
+        for (Counter counter : counters.subList(0, Math.min(capacity, counters.size()))) {
+            merged.place(merged.size, counter.item(), counter.count(), counter.error());
+            merged.siftUp(merged.size++);
+        }
+        return merged;
+    }
+
+    /**
+     * Compact base64 form: capacity, size, then (item, count, error) per counter
+     */
+    String encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(8 + size * 24);
+        buffer.putInt(capacity).putInt(size);
+        for (int i = 0; i < size; i++) {
+            buffer.putLong(items[i]).putDouble(counts[i]).putDouble(errors[i]);
+        }
+        return Base64.getEncoder().encodeToString(buffer.array());
+    }
+
+    /**
+     * @throws IllegalArgumentException if the payload is malformed
+     */
+    static SpaceSavingSketch decode(String encoded) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Base64.getDecoder().decode(encoded));
+            SpaceSavingSketch sketch = new SpaceSavingSketch(buffer.getInt());
+            int size = buffer.getInt();
+            if (size < 0 || size > sketch.capacity) {
+                throw new IllegalArgumentException("Sketch size " + size + " exceeds its capacity");
+            }
+            for (int i = 0; i < size; i++) {
+                sketch.place(i, buffer.getLong(), buffer.getDouble(), buffer.getDouble());
+                sketch.siftUp(i);
+            }
+            sketch.size = size;
+            return sketch;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Malformed sketch", e);
+        }
+    }
+
+    private List<Counter> counters() {
+        List<Counter> counters = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            counters.add(new Counter(items[i], counts[i], errors[i]));
+        }
+        return counters;
+    }
+
+    private void place(int position, long item, double count, double error) {
+        items[position] = item;
+        counts[position] = count;
+        errors[position] = error;
+        positions.put(item, position);
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (counts[parent] <= counts[position]) {
+                break;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        int half = size >>> 1;
+        while (position < half) {
+            int child = 2 * position + 1;
+            int right = child + 1;
+            if (right < size && counts[right] < counts[child]) {
+                child = right;
+            }
+            if (counts[position] <= counts[child]) {
+                break;
+            }
+            swap(position, child);
+            position = child;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long item = items[a];
+        double count = counts[a];
+        double error = errors[a];
+        place(a, items[b], counts[b], errors[b]);
+        place(b, item, count, error);
+    }
+}
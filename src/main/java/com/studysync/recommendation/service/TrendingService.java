@@ -0,0 +1,331 @@
+package com.studysync.recommendation.service;
+
+import com.studysync.recommendation.dto.UserInteractionEvent;
+import com.studysync.recommendation.model.UserInteraction;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Approximate trending posts, globally and per category, from in-memory
+ * heavy-hitter sketches.
+ *
+ * Each node feeds the interactions it consumes into a Space-Saving sketch per
+ * scope (global, and one per category up to max-categories), so memory is
+ * bounded however many posts exist and ingest never touches Redis. Weights
+ * use forward decay: an interaction at time t counts weight x
+ * 2^((t - landmark) / half-life), so older activity fades with the configured
+ * half-life without rewriting counters; the landmark moves forward on a fixed
+ * cluster-wide schedule and counters are rescaled when it does.
+ *
+ * Every publish interval a node writes its changed sketches to its Redis hash
+ * ({@code trending:sketch:<node>}, one field per scope). A read merges the
+ * sketches of all live nodes with this node's own and caches the result
+ * briefly; if Redis is unavailable it serves this node's view alone.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TrendingService {
+
+    private static final String GLOBAL_SCOPE = "global";
+    private static final String CATEGORY_SCOPE_PREFIX = "category:";
+    private static final String SKETCH_KEY_PREFIX = "trending:sketch:";
+    private static final String NODES_KEY = "trending:sketch:nodes";
+
+    // The landmark advances every this many half-lives (counters shrink by 2^-8)
+    private static final int LANDMARK_HALF_LIVES = 8;
+
+    private final RedisTemplate<String, String> redisTemplate;
+
+    @Value("${app.recommendation.like-weight}")
+    private double likeWeight;
+
+    @Value("${app.recommendation.comment-weight}")
+    private double commentWeight;
+
+    @Value("${app.recommendation.share-weight}")
+    private double shareWeight;
+
+    @Value("${app.recommendation.view-weight}")
+    private double viewWeight;
+
+    @Value("${app.recommendation.bookmark-weight}")
+    private double bookmarkWeight;
+
+    @Value("${app.trending.sketch.capacity:1000}")
+    private int capacity;
+
+    @Value("${app.trending.sketch.category-capacity:200}")
+    private int categoryCapacity;
+
+    @Value("${app.trending.sketch.max-categories:200}")
+    private int maxCategories;
+
+    @Value("${app.trending.half-life:6h}")
+    private Duration halfLife;
+
+    // A node whose sketches are older than this is ignored (it stopped or lost Redis)
+    @Value("${app.trending.node-ttl:30s}")
+    private Duration nodeTtl;
+
+    // Reads share a merged view for this long
+    @Value("${app.trending.read-cache-ttl:5s}")
+    private Duration readCacheTtl;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final ConcurrentHashMap<String, Scope> scopes = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, MergedView> merged = new ConcurrentHashMap<>();
+
+    /**
+     * One scope's sketch with counts relative to its decay landmark
+     */
+    private static final class Scope {
+        private final SpaceSavingSketch sketch;
+        private long landmark;
+        private boolean dirty;
+
+        Scope(int capacity, long landmark) {
+            this.sketch = new SpaceSavingSketch(capacity);
+            this.landmark = landmark;
+        }
+    }
+
+    private record Snapshot(SpaceSavingSketch sketch, long landmark) {
+    }
+
+    private record MergedView(List<SpaceSavingSketch.Counter> top, long createdAt) {
+    }
+
+    /**
+     * Count consumed interactions; called from the interaction consumer after
+     * the events were processed
+     */
+    public void record(List<UserInteractionEvent> events) {
+        long now = System.currentTimeMillis();
+        for (UserInteractionEvent event : events) {
+            if (event.getPostId() == null || event.getInteractionType() == null) {
+                continue;
+            }
+            double weight = weight(event.getInteractionType());
+            if (weight <= 0) {
+                continue;
+            }
+            offer(GLOBAL_SCOPE, capacity, event.getPostId(), weight, now);
+
+            Object category = event.getMetadata() != null ? event.getMetadata().get("category") : null;
+            if (category != null) {
+                String scope = CATEGORY_SCOPE_PREFIX + category;
+                // Categories beyond the cap are only counted globally
+                if (scopes.containsKey(scope) || scopes.size() <= maxCategories) {
+                    offer(scope, categoryCapacity, event.getPostId(), weight, now);
+                }
+            }
+        }
+    }
+
+    /**
+     * Top trending post IDs across the cluster, best first
+     *
+     * @param category category to rank within, or null for all posts
+     */
+    public List<Long> getTrending(String category, int limit) {
+        String scope = category == null ? GLOBAL_SCOPE : CATEGORY_SCOPE_PREFIX + category;
+        long now = System.currentTimeMillis();
+        MergedView view = merged.get(scope);
+        if (view == null || now - view.createdAt() >= readCacheTtl.toMillis()) {
+            view = merge(scope, now);
+            merged.put(scope, view);
+        }
+        return view.top().stream()
+                .limit(limit)
+                .map(SpaceSavingSketch.Counter::item)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Forget a deleted post on this node; other nodes' counts for it age out,
+     * and readers drop posts that no longer exist
+     */
+    public void remove(Long postId, String category) {
+        List<String> affected = category == null
+                ? List.of(GLOBAL_SCOPE)
+                : List.of(GLOBAL_SCOPE, CATEGORY_SCOPE_PREFIX + category);
+        for (String name : affected) {
+            Scope scope = scopes.get(name);
+            if (scope != null) {
+                synchronized (scope) {
+                    scope.sketch.remove(postId);
+                    scope.dirty = true;
+                }
+            }
+            merged.remove(name);
+        }
+    }
+
+    /**
+     * Write changed sketches to this node's Redis hash in one pipeline
+     */
+    @Scheduled(fixedDelayString = "${app.trending.publish-interval-ms:5000}")
+    public void publish() {
+        Map<byte[], byte[]> changed = new HashMap<>();
+        scopes.forEach((name, scope) -> {
+            synchronized (scope) {
+                if (scope.dirty) {
+                    changed.put(bytes(name), bytes(scope.landmark + "|" + scope.sketch.encode()));
+                    scope.dirty = false;
+                }
+            }
+        });
+
+        long now = System.currentTimeMillis();
+        byte[] sketchKey = bytes(SKETCH_KEY_PREFIX + nodeId);
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                if (!changed.isEmpty()) {
+                    connection.hashCommands().hMSet(sketchKey, changed);
+                }
+                connection.keyCommands().pExpire(sketchKey, nodeTtl.toMillis() * 2);
+                connection.zSetCommands().zAdd(bytes(NODES_KEY), now, bytes(nodeId));
+                connection.zSetCommands().zRemRangeByScore(bytes(NODES_KEY), 0, now - nodeTtl.toMillis());
+                return null;
+            });
+        } catch (Exception e) {
+            // Publish everything again next time
+            changed.keySet().forEach(name -> {
+                Scope scope = scopes.get(new String(name, StandardCharsets.UTF_8));
+                if (scope != null) {
+                    synchronized (scope) {
+                        scope.dirty = true;
+                    }
+                }
+            });
+            log.warn("Failed to publish trending sketches: {}", e.getMessage());
+        }
+    }
+
+    private void offer(String name, int scopeCapacity, long postId, double weight, long now) {
+        long landmark = landmark(now);
+        Scope scope = scopes.computeIfAbsent(name, key -> new Scope(scopeCapacity, landmark));
+        synchronized (scope) {
+            if (scope.landmark < landmark) {
+                scope.sketch.scale(decay(landmark - scope.landmark));
+                scope.landmark = landmark;
+            }
+            scope.sketch.offer(postId, weight / decay(now - landmark));
+            scope.dirty = true;
+        }
+    }
+
+    private MergedView merge(String scope, long now) {
+        long landmark = landmark(now);
+        List<Snapshot> snapshots = new ArrayList<>();
+
+        Scope local = scopes.get(scope);
+        if (local != null) {
+            synchronized (local) {
+                snapshots.add(new Snapshot(local.sketch.copy(), local.landmark));
+            }
+        }
+        snapshots.addAll(remoteSnapshots(scope, now));
+
+        List<SpaceSavingSketch> aligned = new ArrayList<>(snapshots.size());
+        for (Snapshot snapshot : snapshots) {
+            // Bring every sketch to the current landmark before adding counts
+            if (snapshot.landmark() != landmark) {
+                snapshot.sketch().scale(decay(landmark - snapshot.landmark()));
+            }
+            aligned.add(snapshot.sketch());
+        }
+        int scopeCapacity = GLOBAL_SCOPE.equals(scope) ? capacity : categoryCapacity;
+        SpaceSavingSketch combined = SpaceSavingSketch.merge(aligned, scopeCapacity);
+        return new MergedView(combined.top(scopeCapacity), now);
+    }
+
+    private List<Snapshot> remoteSnapshots(String scope, long now) {
+        try {
+            Set<String> nodes = redisTemplate.opsForZSet().rangeByScore(NODES_KEY, now - nodeTtl.toMillis(),
+                    Double.MAX_VALUE);
+            if (nodes == null || nodes.isEmpty()) {
+                return List.of();
+            }
+            List<String> others = nodes.stream()
+                    .filter(node -> !node.equals(nodeId))
+                    .collect(Collectors.toList());
+            List<Object> payloads = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (String node : others) {
+                    connection.hashCommands().hGet(bytes(SKETCH_KEY_PREFIX + node), bytes(scope));
+                }
+                return null;
+            });
+
+            List<Snapshot> snapshots = new ArrayList<>(payloads.size());
+            for (Object payload : payloads) {
+                if (payload == null) {
+                    continue;
+                }
+                String value = payload instanceof byte[] raw
+                        ? new String(raw, StandardCharsets.UTF_8)
+                        : payload.toString();
+                int separator = value.indexOf('|');
+                try {
+                    snapshots.add(new Snapshot(SpaceSavingSketch.decode(value.substring(separator + 1)),
+                            Long.parseLong(value.substring(0, separator))));
+                } catch (RuntimeException e) {
+                    log.warn("Ignoring malformed trending sketch for {}: {}", scope, e.getMessage());
+                }
+            }
+            return snapshots;
+        } catch (Exception e) {
+            log.warn("Failed to read trending sketches for {}, using this node's only: {}", scope,
+                    e.getMessage());
+            return List.of();
+        }
+    }
+
+    private double weight(UserInteraction.InteractionType type) {
+        return switch (type) {
+            case LIKE -> likeWeight;
+            case COMMENT -> commentWeight;
+            case SHARE -> shareWeight;
+            case VIEW -> viewWeight;
+            case BOOKMARK -> bookmarkWeight;
+            default -> 0.0;
+        };
+    }
+
+    /**
+     * Decay landmark for a time: a multiple of LANDMARK_HALF_LIVES half-lives
+     * since the epoch, so every node picks the same one
+     */
+    private long landmark(long now) {
+        long period = halfLife.toMillis() * LANDMARK_HALF_LIVES;
+        return now - Math.floorMod(now, period);
+    }
+
+    /**
+     * Factor by which counts shrink over the given time
+     */
+    private double decay(long elapsedMillis) {
+        return Math.pow(0.5, (double) elapsedMillis / halfLife.toMillis());
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,111 @@
+package com.studysync.recommendation.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop HTTP load generator used to compare the platform-thread and
+ * virtual-thread execution modes (see bench/compare-execution-modes.sh).
+ *
+ * Usage: ExecutionModeBenchmark baseUrl concurrency durationSeconds label [maxUserId]
+ *
+ * Each client repeatedly requests recommendations and interaction stats for a
+ * random user, so every request goes through JPA, Redis and the cache layer.
+ * Prints requests per second and p50/p99 latency for the run.
+ */
+public class ExecutionModeBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 4) {
+            System.err.println("Usage: ExecutionModeBenchmark baseUrl concurrency durationSeconds label [maxUserId]");
+            System.exit(1);
+        }
+
+        String baseUrl = args[0];
+        int concurrency = Integer.parseInt(args[1]);
+        long durationMillis = Long.parseLong(args[2]) * 1000;
+        String label = args[3];
+        long maxUserId = args.length > 4 ? Long.parseLong(args[4]) : 10_000;
+
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newFixedThreadPool(8))
+                .build();
+
+        // Warm up connections, caches and the JIT
+        runLoad(client, baseUrl, concurrency, 10_000, maxUserId);
+
+        Result result = runLoad(client, baseUrl, concurrency, durationMillis, maxUserId);
+        System.out.printf("%-10s concurrency=%d requests=%d errors=%d rps=%.1f p50=%.1fms p99=%.1fms%n",
+                label, concurrency, result.requests(), result.errors(),
+                result.requests() * 1000.0 / durationMillis,
+                result.percentile(0.50), result.percentile(0.99));
+        System.exit(0);
+    }
+
+    private static Result runLoad(HttpClient client, String baseUrl, int concurrency, long durationMillis,
+            long maxUserId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + durationMillis;
+        AtomicLong errors = new AtomicLong();
+        List<List<Long>> latencies = new ArrayList<>(concurrency);
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+
+        for (int i = 0; i < concurrency; i++) {
+            List<Long> samples = new ArrayList<>();
+            latencies.add(samples);
+            clients.execute(() -> {
+                while (System.currentTimeMillis() < deadline) {
+                    long userId = ThreadLocalRandom.current().nextLong(1, maxUserId + 1);
+                    String path = ThreadLocalRandom.current().nextBoolean()
+                            ? "/api/v1/recommendations/user/" + userId
+                            : "/api/v1/interactions/user/" + userId + "/stats";
+                    HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                            .timeout(Duration.ofSeconds(30))
+                            .GET()
+                            .build();
+
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() >= 500) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                    samples.add(System.nanoTime() - start);
+                }
+            });
+        }
+
+        clients.shutdown();
+        clients.awaitTermination(durationMillis + 60_000, TimeUnit.MILLISECONDS);
+
+        long[] all = latencies.stream().flatMap(List::stream).mapToLong(Long::longValue).sorted().toArray();
+        return new Result(all, errors.get());
+    }
+
+    private record Result(long[] sortedNanos, long errors) {
+        long requests() {
+            return sortedNanos.length;
+        }
+
+        double percentile(double p) {
+            if (sortedNanos.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.min(sortedNanos.length - 1, Math.ceil(p * sortedNanos.length) - 1);
+            return sortedNanos[Math.max(0, index)] / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.studysync.recommendation.grpc.client;
+
+import com.studysync.recommendation.grpc.BatchPostRequest;
+import com.studysync.recommendation.grpc.BatchPostResponse;
+import com.studysync.recommendation.grpc.PostDetailServiceGrpc;
+import com.studysync.recommendation.grpc.PostRequest;
+import com.studysync.recommendation.grpc.PostResponse;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GrpcPostClientTest {
+
+    private final List<Server> servers = new ArrayList<>();
+    private final List<ManagedChannel> channels = new ArrayList<>();
+    private GrpcPostClient client;
+
+    @AfterEach
+    void tearDown() {
+        client.shutdown();
+        servers.forEach(Server::shutdownNow);
+    }
+
+    @Test
+    void spreadsCallsRoundRobinOverBackends() throws Exception {
+        FakeBackend first = backend(0);
+        FakeBackend second = backend(0);
+        client = client(false, 64, 100);
+
+        for (long postId = 1; postId <= 4; postId++) {
+            assertEquals(postId, client.getPostInfoAsync(postId).get(5, TimeUnit.SECONDS).orElseThrow().getId());
+        }
+
+        assertEquals(2, first.postCalls.get());
+        assertEquals(2, second.postCalls.get());
+    }
+
+    @Test
+    void returnsEmptyForUnknownPost() throws Exception {
+        backend(0);
+        client = client(false, 64, 100);
+
+        assertEquals(Optional.empty(), client.getPostInfoAsync(FakeBackend.UNKNOWN_POST).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void splitsLargeBatchesIntoParallelChunks() throws Exception {
+        FakeBackend first = backend(0);
+        FakeBackend second = backend(0);
+        client = client(false, 64, 100);
+
+        List<Long> postIds = LongStream.rangeClosed(1, 250).boxed().collect(Collectors.toList());
+        List<PostResponse> posts = client.getBatchPostInfoAsync(postIds).get(5, TimeUnit.SECONDS);
+
+        assertEquals(postIds, posts.stream().map(PostResponse::getId).collect(Collectors.toList()));
+        assertEquals(3, first.batchCalls.get() + second.batchCalls.get());
+    }
+
+    @Test
+    void hedgesToTheNextBackendWhenTheFirstIsSlow() throws Exception {
+        FakeBackend slow = backend(2_000);
+        FakeBackend fast = backend(0);
+        client = client(true, 64, 100);
+
+        long started = System.nanoTime();
+        Optional<PostResponse> post = client.getPostInfoAsync(7L).get(5, TimeUnit.SECONDS);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        assertEquals(7L, post.orElseThrow().getId());
+        assertTrue(elapsedMillis < 1_000, "hedged call took " + elapsedMillis + " ms");
+        assertEquals(1, slow.postCalls.get());
+        assertEquals(1, fast.postCalls.get());
+    }
+
+    @Test
+    void rejectsCallsBeyondTheBulkhead() throws Exception {
+        FakeBackend backend = backend(0);
+        backend.hold = new CountDownLatch(1);
+        client = client(false, 1, 100);
+
+        CompletableFuture<Optional<PostResponse>> inFlight = client.getPostInfoAsync(1L);
+        CompletionException rejected = assertThrows(CompletionException.class,
+                () -> client.getPostInfoAsync(2L).join());
+        assertEquals(Status.Code.RESOURCE_EXHAUSTED, Status.fromThrowable(rejected.getCause()).getCode());
+
+        backend.hold.countDown();
+        assertEquals(1L, inFlight.get(5, TimeUnit.SECONDS).orElseThrow().getId());
+        // The permit is released once the call completes
+        assertEquals(3L, client.getPostInfoAsync(3L).get(5, TimeUnit.SECONDS).orElseThrow().getId());
+    }
+
+    private FakeBackend backend(long delayMillis) throws Exception {
+        String name = InProcessServerBuilder.generateName();
+        FakeBackend backend = new FakeBackend(delayMillis);
+        servers.add(InProcessServerBuilder.forName(name).addService(backend).build().start());
+        channels.add(InProcessChannelBuilder.forName(name).build());
+        return backend;
+    }
+
+    private GrpcPostClient client(boolean hedging, int maxConcurrentCalls, int batchChunkSize) {
+        GrpcPostClient grpcPostClient = new GrpcPostClient();
+        ReflectionTestUtils.setField(grpcPostClient, "timeoutSeconds", 5);
+        ReflectionTestUtils.setField(grpcPostClient, "maxConcurrentCalls", maxConcurrentCalls);
+        ReflectionTestUtils.setField(grpcPostClient, "batchChunkSize", batchChunkSize);
+        ReflectionTestUtils.setField(grpcPostClient, "hedgingEnabled", hedging);
+        ReflectionTestUtils.setField(grpcPostClient, "hedgingPercentile", 0.95);
+        ReflectionTestUtils.setField(grpcPostClient, "minHedgeDelayMs", 50L);
+        ReflectionTestUtils.setField(grpcPostClient, "maxHedgeDelayMs", 100L);
+        grpcPostClient.start(channels);
+        return grpcPostClient;
+    }
+
+    /**
+     * Laravel stand-in: echoes requested IDs as posts, after an optional delay
+     */
+    private static class FakeBackend extends PostDetailServiceGrpc.PostDetailServiceImplBase {
+
+        static final long UNKNOWN_POST = 404L;
+
+        final AtomicInteger postCalls = new AtomicInteger();
+        final AtomicInteger batchCalls = new AtomicInteger();
+        final long delayMillis;
+        volatile CountDownLatch hold;
+
+        FakeBackend(long delayMillis) {
+            this.delayMillis = delayMillis;
+        }
+
+        @Override
+        public void getPostInfo(PostRequest request, StreamObserver<PostResponse> responseObserver) {
+            postCalls.incrementAndGet();
+            pause();
+            responseObserver.onNext(request.getPostId() == UNKNOWN_POST
+                    ? PostResponse.getDefaultInstance()
+                    : post(request.getPostId()));
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public void getBatchPostInfo(BatchPostRequest request, StreamObserver<BatchPostResponse> responseObserver) {
+            batchCalls.incrementAndGet();
+            pause();
+            BatchPostResponse.Builder response = BatchPostResponse.newBuilder();
+            request.getPostIdsList().forEach(postId -> response.addPosts(post(postId)));
+            responseObserver.onNext(response.build());
+            responseObserver.onCompleted();
+        }
+
+        private void pause() {
+            try {
+                if (hold != null) {
+                    hold.await(5, TimeUnit.SECONDS);
+                }
+                if (delayMillis > 0) {
+                    Thread.sleep(delayMillis);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private static PostResponse post(long postId) {
+            return PostResponse.newBuilder()
+                    .setId(postId)
+                    .setTitle("Post " + postId)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.studysync.recommendation.service;
+
+import com.studysync.recommendation.dto.CachedRecommendations;
+import com.studysync.recommendation.dto.PostRecommendationEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RecommendationCacheTest {
+
+    private static final Duration FRESH_FOR = Duration.ofMinutes(30);
+    private static final List<PostRecommendationEvent.RecommendedPost> RECOMMENDATIONS = List.of(post(1L), post(2L));
+
+    private final Map<Object, Object> store = new ConcurrentHashMap<>();
+    private Cache cache;
+    private RecommendationCache recommendationCache;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        cache = mock(Cache.class);
+        when(cache.get(any())).thenAnswer(invocation -> {
+            Object value = store.get(invocation.getArgument(0));
+            return value != null ? new SimpleValueWrapper(value) : null;
+        });
+        doAnswer(invocation -> store.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(cache).put(any(), any());
+        doAnswer(invocation -> store.remove(invocation.getArgument(0))).when(cache).evict(any());
+
+        CacheManager cacheManager = mock(CacheManager.class);
+        when(cacheManager.getCache(RecommendationCache.CACHE_NAME)).thenReturn(cache);
+
+        recommendationCache = new RecommendationCache(cacheManager, mock(RedisTemplate.class), new MockEnvironment());
+        ReflectionTestUtils.setField(recommendationCache, "freshFor", FRESH_FOR);
+        ReflectionTestUtils.setField(recommendationCache, "leaseEnabled", false);
+        ReflectionTestUtils.setField(recommendationCache, "leaseTtl", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(recommendationCache, "leaseWait", Duration.ofSeconds(2));
+        ReflectionTestUtils.setField(recommendationCache, "refreshThreads", 1);
+        recommendationCache.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        recommendationCache.shutdown();
+    }
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Function<Long, List<PostRecommendationEvent.RecommendedPost>> loader = userId -> {
+            loads.incrementAndGet();
+            started.countDown();
+            await(release);
+            return RECOMMENDATIONS;
+        };
+
+        List<Thread> callers = new ArrayList<>();
+        List<List<PostRecommendationEvent.RecommendedPost>> results = new ArrayList<>();
+        Thread first = caller(loader, results);
+        callers.add(first);
+        first.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        for (int i = 0; i < 7; i++) {
+            Thread thread = caller(loader, results);
+            callers.add(thread);
+            thread.start();
+        }
+        // Every other caller is parked on the in-flight computation
+        for (Thread thread : callers.subList(1, callers.size())) {
+            awaitState(thread, Thread.State.WAITING);
+        }
+        release.countDown();
+        for (Thread thread : callers) {
+            thread.join(5000);
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(8, results.size());
+        results.forEach(result -> assertEquals(RECOMMENDATIONS, result));
+        assertEquals(RECOMMENDATIONS, cached(7L).getRecommendations());
+    }
+
+    @Test
+    void staleHitTriggersExactlyOneBackgroundRefresh() throws Exception {
+        List<PostRecommendationEvent.RecommendedPost> stale = List.of(post(9L));
+        store.put(7L, CachedRecommendations.builder()
+                .recommendations(stale)
+                .generatedAt(System.currentTimeMillis() - FRESH_FOR.toMillis() * 2)
+                .build());
+
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Function<Long, List<PostRecommendationEvent.RecommendedPost>> loader = userId -> {
+            loads.incrementAndGet();
+            started.countDown();
+            await(release);
+            return RECOMMENDATIONS;
+        };
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(stale, recommendationCache.get(7L, loader));
+        }
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        release.countDown();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!RECOMMENDATIONS.equals(cached(7L).getRecommendations()) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(RECOMMENDATIONS, cached(7L).getRecommendations());
+        assertEquals(1, loads.get());
+        // Fresh again: served without another refresh
+        assertEquals(RECOMMENDATIONS, recommendationCache.get(7L, loader));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void evictionDuringLoadPreventsTheWrite() {
+        Function<Long, List<PostRecommendationEvent.RecommendedPost>> loader = userId -> {
+            // The user interacts while their recommendations are being computed
+            recommendationCache.evict(List.of(userId));
+            return RECOMMENDATIONS;
+        };
+
+        assertEquals(RECOMMENDATIONS, recommendationCache.get(7L, loader));
+
+        assertNull(cached(7L));
+        verify(cache, never()).put(any(), any());
+    }
+
+    @Test
+    void precomputedPutIsSkippedAfterAnEviction() {
+        long generation = recommendationCache.generation(7L);
+        recommendationCache.evict(List.of(7L));
+
+        recommendationCache.put(7L, RECOMMENDATIONS, generation);
+        assertNull(cached(7L));
+
+        recommendationCache.put(7L, RECOMMENDATIONS, recommendationCache.generation(7L));
+        assertEquals(RECOMMENDATIONS, cached(7L).getRecommendations());
+    }
+
+    private Thread caller(Function<Long, List<PostRecommendationEvent.RecommendedPost>> loader,
+            List<List<PostRecommendationEvent.RecommendedPost>> results) {
+        return new Thread(() -> {
+            List<PostRecommendationEvent.RecommendedPost> result = recommendationCache.get(7L, loader);
+            synchronized (results) {
+                results.add(result);
+            }
+        });
+    }
+
+    private CachedRecommendations cached(Long userId) {
+        return (CachedRecommendations) store.get(userId);
+    }
+
+    private static void awaitState(Thread thread, Thread.State state) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (thread.getState() != state) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError(thread.getName() + " never reached " + state);
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            if (!latch.await(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Timed out waiting for the test");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static PostRecommendationEvent.RecommendedPost post(Long postId) {
+        return PostRecommendationEvent.RecommendedPost.builder()
+                .postId(postId)
+                .score(1.0)
+                .build();
+    }
+}
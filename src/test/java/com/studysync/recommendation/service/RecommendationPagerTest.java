@@ -0,0 +1,201 @@
+package com.studysync.recommendation.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.studysync.recommendation.model.PostScore;
+import com.studysync.recommendation.model.UserPreference;
+import com.studysync.recommendation.repository.PostScoreRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RecommendationPagerTest {
+
+    private final List<PostScore> posts = new ArrayList<>();
+    private PostScoreRepository postScoreRepository;
+    private RankScoreCodec rankScoreCodec;
+    private RecommendationPager pager;
+    private double baseRank;
+
+    @BeforeEach
+    void setUp() {
+        rankScoreCodec = new RankScoreCodec();
+        ReflectionTestUtils.setField(rankScoreCodec, "timeDecayFactor", 0.9);
+        rankScoreCodec.init();
+        // A post created now with a zero score; decoded scores are relative to it
+        baseRank = rankScoreCodec.encode(0.0, LocalDateTime.now());
+
+        postScoreRepository = mock(PostScoreRepository.class);
+        when(postScoreRepository.findRankingAfter(anyDouble(), anyLong(), any(Pageable.class)))
+                .thenAnswer(invocation -> window(post -> true,
+                        invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2)));
+        when(postScoreRepository.findRankingAfterExcluding(anyCollection(), anyDouble(), anyLong(),
+                any(Pageable.class)))
+                .thenAnswer(invocation -> {
+                    Collection<String> excluded = invocation.getArgument(0);
+                    return window(post -> post.getCategory() == null || !excluded.contains(post.getCategory()),
+                            invocation.getArgument(1), invocation.getArgument(2), invocation.getArgument(3));
+                });
+        when(postScoreRepository.findCategoryRankingAfter(anyString(), anyDouble(), anyLong(), any(Pageable.class)))
+                .thenAnswer(invocation -> {
+                    String category = invocation.getArgument(0);
+                    return window(post -> category.equals(post.getCategory()),
+                            invocation.getArgument(1), invocation.getArgument(2), invocation.getArgument(3));
+                });
+
+        pager = new RecommendationPager(postScoreRepository, new ObjectMapper(), rankScoreCodec);
+        ReflectionTestUtils.setField(pager, "maxCategories", 5);
+        ReflectionTestUtils.setField(pager, "windowSize", 50);
+        ReflectionTestUtils.setField(pager, "scanBudget", 1000);
+        ReflectionTestUtils.setField(pager, "maxServedIds", 200);
+        pager.init();
+    }
+
+    @Test
+    void preferredCategoriesAreExcludedFromTheGlobalSource() {
+        post(1L, "math", 3.0);
+        post(2L, "math", 2.0);
+        post(3L, "physics", 2.5);
+        post(4L, null, 1.5);
+        post(5L, "chemistry", 1.0);
+
+        RecommendationPager.Page page = pager.nextPage(List.of(preference("math", 0.5)),
+                new Roaring64NavigableMap(), null, 10);
+
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), ids(page));
+        assertNull(page.nextCursor());
+        verify(postScoreRepository).findRankingAfterExcluding(eq(List.of("math")), anyDouble(), anyLong(),
+                any(Pageable.class));
+        verify(postScoreRepository, never()).findRankingAfter(anyDouble(), anyLong(), any(Pageable.class));
+    }
+
+    @Test
+    void returnsShortPagesWhenTheScanBudgetRunsOut() {
+        ReflectionTestUtils.setField(pager, "windowSize", 2);
+        ReflectionTestUtils.setField(pager, "scanBudget", 4);
+        for (long postId = 1; postId <= 10; postId++) {
+            post(postId, null, 10.0 - postId);
+        }
+        Roaring64NavigableMap seen = Roaring64NavigableMap.bitmapOf(1L, 2L, 3L, 4L);
+
+        RecommendationPager.Page first = pager.nextPage(List.of(), seen, null, 3);
+        assertEquals(List.of(), ids(first));
+        assertNotNull(first.nextCursor());
+
+        RecommendationPager.Page second = pager.nextPage(List.of(), seen, first.nextCursor(), 3);
+        assertEquals(List.of(5L, 6L, 7L), ids(second));
+    }
+
+    @Test
+    void cursorsContinueWithoutGapsOrRepeats() {
+        for (long postId = 1; postId <= 5; postId++) {
+            post(postId, postId % 2 == 0 ? "math" : null, 10.0 - postId);
+        }
+        List<UserPreference> preferences = List.of(preference("math", 0.01));
+        Roaring64NavigableMap seen = new Roaring64NavigableMap();
+
+        RecommendationPager.Page first = pager.nextPage(preferences, seen, null, 2);
+        RecommendationPager.Page second = pager.nextPage(preferences, seen, first.nextCursor(), 2);
+        RecommendationPager.Page third = pager.nextPage(preferences, seen, second.nextCursor(), 2);
+
+        assertEquals(List.of(1L, 2L), ids(first));
+        assertEquals(List.of(3L, 4L), ids(second));
+        assertEquals(List.of(5L), ids(third));
+        assertNull(third.nextCursor());
+    }
+
+    @Test
+    void doesNotRepeatPostsWhoseScoreDroppedBehindTheCursor() {
+        post(1L, null, 10.0);
+        post(2L, null, 9.0);
+        post(3L, null, 8.0);
+        post(4L, null, 7.0);
+        post(5L, null, 4.0);
+
+        RecommendationPager.Page first = pager.nextPage(List.of(), new Roaring64NavigableMap(), null, 2);
+        assertEquals(List.of(1L, 2L), ids(first));
+
+        // Unlikes push the first post below the cursor
+        posts.get(0).setRankScore(baseRank + Math.log(5.0));
+
+        RecommendationPager.Page second = pager.nextPage(List.of(), new Roaring64NavigableMap(),
+                first.nextCursor(), 3);
+        assertEquals(List.of(3L, 4L, 5L), ids(second));
+    }
+
+    @Test
+    void rejectsInvalidCursors() {
+        Roaring64NavigableMap seen = new Roaring64NavigableMap();
+
+        assertThrows(IllegalArgumentException.class, () -> pager.nextPage(List.of(), seen, "not a cursor!", 10));
+        assertThrows(IllegalArgumentException.class, () -> pager.nextPage(List.of(), seen, encoded("[1,2]"), 10));
+        assertThrows(IllegalArgumentException.class, () -> pager.nextPage(List.of(), seen, encoded("{}"), 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> pager.nextPage(List.of(), seen, encoded("{\"sources\":[]}"), 10));
+    }
+
+    private List<PostScore> window(Predicate<PostScore> filter, double score, long postId,
+            Pageable pageable) {
+        return posts.stream()
+                .filter(filter)
+                .filter(post -> post.getRankScore() < score
+                        || (post.getRankScore() == score && post.getPostId() > postId))
+                .sorted(Comparator.comparingDouble(PostScore::getRankScore).reversed()
+                        .thenComparingLong(PostScore::getPostId))
+                .limit(pageable.getPageSize())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * A post whose decayed score today is roughly {@code decayed}
+     */
+    private void post(Long postId, String category, double decayed) {
+        posts.add(PostScore.builder()
+                .postId(postId)
+                .category(category)
+                .totalScore(decayed)
+                .rankScore(baseRank + Math.log(decayed))
+                .build());
+    }
+
+    private static UserPreference preference(String category, double score) {
+        UserPreference preference = new UserPreference();
+        preference.setCategory(category);
+        preference.setPreferenceScore(score);
+        return preference;
+    }
+
+    private static List<Long> ids(RecommendationPager.Page page) {
+        return page.posts().stream().map(PostScore::getPostId).collect(Collectors.toList());
+    }
+
+    private static String encoded(String json) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,219 @@
+package com.studysync.recommendation.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class RecommendationRegenerationSchedulerTest {
+
+    private static final Duration QUIET_PERIOD = Duration.ofSeconds(1);
+    private static final Duration MAX_DELAY = Duration.ofSeconds(5);
+    private static final long TICK_MILLIS = 5;
+    // Long enough for several ticks to have run
+    private static final long SETTLE_MILLIS = 100;
+    private static final long WAIT_MILLIS = 5000;
+
+    private final ManualClock clock = new ManualClock();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private RecommendationService recommendationService;
+    private RecommendationRegenerationScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        recommendationService = mock(RecommendationService.class);
+        scheduler = new RecommendationRegenerationScheduler(recommendationService, meterRegistry);
+        ReflectionTestUtils.setField(scheduler, "quietPeriod", QUIET_PERIOD);
+        ReflectionTestUtils.setField(scheduler, "maxDelay", MAX_DELAY);
+        ReflectionTestUtils.setField(scheduler, "workers", 1);
+        ReflectionTestUtils.setField(scheduler, "queueCapacity", 10);
+        ReflectionTestUtils.setField(scheduler, "maxPendingUsers", 100);
+        ReflectionTestUtils.setField(scheduler, "tickMillis", TICK_MILLIS);
+        ReflectionTestUtils.setField(scheduler, "clock", clock);
+        scheduler.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void dispatchesOnceTheUserHasBeenQuiet() {
+        scheduler.request(1L);
+        clock.advance(600);
+        scheduler.request(1L);
+
+        // Quiet for 900 ms only: the second request restarted the quiet period
+        clock.advance(900);
+        verify(recommendationService, after(SETTLE_MILLIS).never()).regenerateAndPublish(1L);
+
+        clock.advance(100);
+        verify(recommendationService, timeout(WAIT_MILLIS)).regenerateAndPublish(1L);
+        verify(recommendationService, after(SETTLE_MILLIS).times(1)).regenerateAndPublish(1L);
+        assertEquals(2.0, meterRegistry.get("recommendation.regeneration.requests").counter().count());
+        assertEquals(1.0, meterRegistry.get("recommendation.regeneration.runs").counter().count());
+    }
+
+    @Test
+    void dispatchesAtTheMaxDelayWhileRequestsKeepComing() {
+        scheduler.request(1L);
+        for (int i = 0; i < 9; i++) {
+            clock.advance(500);
+            scheduler.request(1L);
+        }
+        // 4.5 s since the first request, never quiet
+        verify(recommendationService, after(SETTLE_MILLIS).never()).regenerateAndPublish(1L);
+
+        clock.advance(500);
+        verify(recommendationService, timeout(WAIT_MILLIS)).regenerateAndPublish(1L);
+
+        // A request after the run starts a new job
+        scheduler.request(1L);
+        verify(recommendationService, after(SETTLE_MILLIS).times(1)).regenerateAndPublish(1L);
+        clock.advance(QUIET_PERIOD.toMillis());
+        verify(recommendationService, timeout(WAIT_MILLIS).times(2)).regenerateAndPublish(1L);
+    }
+
+    @Test
+    void dropsTheLongestPendingUserAtMaxPendingUsers() {
+        ReflectionTestUtils.setField(scheduler, "maxPendingUsers", 2);
+
+        scheduler.request(1L);
+        scheduler.request(2L);
+        // Coalesced into user 1's job: neither a new user nor a new arrival
+        scheduler.request(1L);
+        scheduler.request(3L);
+
+        assertEquals(1.0, meterRegistry.get("recommendation.regeneration.dropped").counter().count());
+        assertEquals(2.0, meterRegistry.get("recommendation.regeneration.pending").gauge().value());
+
+        clock.advance(QUIET_PERIOD.toMillis());
+        verify(recommendationService, timeout(WAIT_MILLIS)).regenerateAndPublish(2L);
+        verify(recommendationService, timeout(WAIT_MILLIS)).regenerateAndPublish(3L);
+        verify(recommendationService, after(SETTLE_MILLIS).never()).regenerateAndPublish(1L);
+    }
+
+    @Test
+    void trimsDispatchedUsersFromTheHeadOfTheArrivalQueue() {
+        scheduler.request(2L);
+        scheduler.request(1L);
+        assertEquals(2, arrivals().size());
+
+        // Keeps user 2 pending while user 1 becomes due
+        clock.advance(600);
+        scheduler.request(2L);
+        assertEquals(2, arrivals().size());
+
+        clock.advance(400);
+        verify(recommendationService, timeout(WAIT_MILLIS)).regenerateAndPublish(1L);
+        // User 1's entry is stale but sits behind user 2, so it stays for now
+        verify(recommendationService, after(SETTLE_MILLIS).never()).regenerateAndPublish(2L);
+        assertEquals(2, arrivals().size());
+
+        clock.advance(600);
+        verify(recommendationService, timeout(WAIT_MILLIS)).regenerateAndPublish(2L);
+        awaitCondition(() -> arrivals().isEmpty());
+    }
+
+    @Test
+    void dropSkipsArrivalsWhoseJobAlreadyRan() {
+        ReflectionTestUtils.setField(scheduler, "maxPendingUsers", 2);
+
+        scheduler.request(2L);
+        scheduler.request(1L);
+        clock.advance(600);
+        scheduler.request(2L);
+        clock.advance(400);
+        verify(recommendationService, timeout(WAIT_MILLIS)).regenerateAndPublish(1L);
+
+        // Arrivals become 2, 1 (stale), 3; adding user 4 then drops user 2
+        scheduler.request(3L);
+        assertEquals(0.0, meterRegistry.get("recommendation.regeneration.dropped").counter().count());
+        scheduler.request(4L);
+        assertEquals(1.0, meterRegistry.get("recommendation.regeneration.dropped").counter().count());
+
+        // User 1's stale entry is next in line; the drop passes over it to user 3
+        scheduler.request(5L);
+        assertEquals(2.0, meterRegistry.get("recommendation.regeneration.dropped").counter().count());
+        assertEquals(2.0, meterRegistry.get("recommendation.regeneration.pending").gauge().value());
+
+        clock.advance(QUIET_PERIOD.toMillis());
+        verify(recommendationService, timeout(WAIT_MILLIS)).regenerateAndPublish(4L);
+        verify(recommendationService, timeout(WAIT_MILLIS)).regenerateAndPublish(5L);
+        verify(recommendationService, after(SETTLE_MILLIS).never()).regenerateAndPublish(2L);
+        verify(recommendationService, never()).regenerateAndPublish(3L);
+        verify(recommendationService, times(1)).regenerateAndPublish(1L);
+        awaitCondition(() -> arrivals().isEmpty());
+    }
+
+    private Queue<?> arrivals() {
+        return (Queue<?>) ReflectionTestUtils.getField(scheduler, "arrivals");
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(WAIT_MILLIS);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Condition not met in " + WAIT_MILLIS + " ms");
+            }
+            try {
+                Thread.sleep(TICK_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * A clock that only moves when the test advances it
+     */
+    private static final class ManualClock extends Clock {
+
+        private final AtomicLong millis = new AtomicLong(1_000_000L);
+
+        void advance(long delta) {
+            millis.addAndGet(delta);
+        }
+
+        @Override
+        public long millis() {
+            return millis.get();
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis());
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.studysync.recommendation.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpaceSavingSketchTest {
+
+    private static final double DELTA = 1e-9;
+
+    @Test
+    void findsHeavyHittersWithinTheErrorBound() {
+        int capacity = 50;
+        SpaceSavingSketch sketch = new SpaceSavingSketch(capacity);
+        Map<Long, Double> truth = new HashMap<>();
+        Random random = new Random(42);
+
+        double total = 0;
+        for (int i = 0; i < 50_000; i++) {
+            // Skewed stream: a few hot items over a long tail
+            long item = random.nextDouble() < 0.5 ? random.nextInt(5) : 5 + random.nextInt(5_000);
+            double weight = 1 + random.nextInt(3);
+            sketch.offer(item, weight);
+            truth.merge(item, weight, Double::sum);
+            total += weight;
+        }
+
+        double bound = total / capacity;
+        Map<Long, SpaceSavingSketch.Counter> tracked = sketch.top(capacity).stream()
+                .collect(Collectors.toMap(SpaceSavingSketch.Counter::item, counter -> counter));
+
+        truth.forEach((item, count) -> {
+            if (count > bound) {
+                assertTrue(tracked.containsKey(item), "heavy hitter " + item + " was not tracked");
+            }
+        });
+        tracked.values().forEach(counter -> {
+            double actual = truth.get(counter.item());
+            assertTrue(counter.count() >= actual - DELTA, "count underestimates item " + counter.item());
+            assertTrue(counter.count() - counter.error() <= actual + DELTA, "error too small for " + counter.item());
+            assertTrue(counter.error() <= bound + DELTA, "error exceeds total / capacity");
+        });
+        assertEquals(List.of(0L, 1L, 2L, 3L, 4L), sketch.top(5).stream()
+                .map(SpaceSavingSketch.Counter::item).sorted().collect(Collectors.toList()));
+    }
+
+    @Test
+    void replacesTheMinimumOnceFull() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(2);
+        sketch.offer(1, 5);
+        sketch.offer(2, 3);
+        assertEquals(3, sketch.floor(), DELTA);
+
+        sketch.offer(3, 1);
+
+        assertEquals(2, sketch.size());
+        SpaceSavingSketch.Counter replacement = counter(sketch, 3);
+        assertEquals(4, replacement.count(), DELTA);
+        assertEquals(3, replacement.error(), DELTA);
+        assertFalse(sketch.top(2).stream().anyMatch(counter -> counter.item() == 2));
+    }
+
+    @Test
+    void mergesFullAndPartialSketches() {
+        SpaceSavingSketch full = new SpaceSavingSketch(2);
+        full.offer(1, 10);
+        full.offer(2, 4);
+        full.offer(3, 1); // evicts 2: 3 now counts 5 with error 4
+
+        SpaceSavingSketch partial = new SpaceSavingSketch(4);
+        partial.offer(2, 6);
+        partial.offer(4, 1);
+
+        SpaceSavingSketch merged = SpaceSavingSketch.merge(List.of(full, partial), 3);
+
+        assertEquals(3, merged.size());
+        // Item 1 is missing from the partial sketch, which credits nothing
+        assertEquals(10, counter(merged, 1).count(), DELTA);
+        // Item 2 is missing from the full sketch, which credits its minimum (5)
+        assertEquals(11, counter(merged, 2).count(), DELTA);
+        assertEquals(5, counter(merged, 2).error(), DELTA);
+        assertEquals(6, counter(merged, 4).count(), DELTA);
+        assertEquals(5, counter(merged, 4).error(), DELTA);
+        // Item 3 (count 5) falls outside the top three
+        assertEquals(List.of(2L, 1L, 4L), merged.top(3).stream()
+                .map(SpaceSavingSketch.Counter::item).collect(Collectors.toList()));
+    }
+
+    @Test
+    void scalesCountsAndErrorsWhenTheLandmarkMoves() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(1);
+        sketch.offer(1, 8);
+        sketch.offer(2, 4);
+
+        sketch.scale(0.25);
+
+        SpaceSavingSketch.Counter counter = counter(sketch, 2);
+        assertEquals(3, counter.count(), DELTA);
+        assertEquals(2, counter.error(), DELTA);
+        assertEquals(3, sketch.floor(), DELTA);
+    }
+
+    @Test
+    void offersAfterRemoveKeepTheHeapConsistent() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(3);
+        sketch.offer(1, 1);
+        sketch.offer(2, 5);
+        sketch.offer(3, 3);
+
+        sketch.remove(1);
+        sketch.remove(42);
+        assertEquals(2, sketch.size());
+        assertEquals(0, sketch.floor(), DELTA);
+
+        // Fills the freed slot without inheriting an error
+        sketch.offer(4, 2);
+        assertEquals(0, counter(sketch, 4).error(), DELTA);
+        assertEquals(2, sketch.floor(), DELTA);
+
+        // Full again: the next new item replaces the minimum (item 4)
+        sketch.offer(5, 1);
+        assertEquals(3, counter(sketch, 5).count(), DELTA);
+        assertEquals(List.of(2L, 3L, 5L), sketch.top(3).stream()
+                .map(SpaceSavingSketch.Counter::item).sorted().collect(Collectors.toList()));
+    }
+
+    @Test
+    void roundTripsThroughTheEncodedForm() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(3);
+        sketch.offer(1, 2);
+        sketch.offer(2, 7);
+        sketch.offer(3, 4);
+        sketch.offer(4, 1);
+
+        SpaceSavingSketch decoded = SpaceSavingSketch.decode(sketch.encode());
+
+        assertEquals(sketch.capacity(), decoded.capacity());
+        assertEquals(sketch.top(3), decoded.top(3));
+        assertEquals(sketch.floor(), decoded.floor(), DELTA);
+    }
+
+    @Test
+    void rejectsMalformedPayloads() {
+        assertThrows(IllegalArgumentException.class, () -> SpaceSavingSketch.decode("not base64!"));
+        assertThrows(IllegalArgumentException.class, () -> SpaceSavingSketch.decode(""));
+
+        String truncated = new SpaceSavingSketch(2).encode().substring(0, 4);
+        assertThrows(IllegalArgumentException.class, () -> SpaceSavingSketch.decode(truncated));
+
+        ByteBuffer oversized = ByteBuffer.allocate(8).putInt(1).putInt(2);
+        assertThrows(IllegalArgumentException.class,
+                () -> SpaceSavingSketch.decode(Base64.getEncoder().encodeToString(oversized.array())));
+
+        ByteBuffer missingCounters = ByteBuffer.allocate(8).putInt(4).putInt(2);
+        assertThrows(IllegalArgumentException.class,
+                () -> SpaceSavingSketch.decode(Base64.getEncoder().encodeToString(missingCounters.array())));
+
+        ByteBuffer zeroCapacity = ByteBuffer.allocate(8).putInt(0).putInt(0);
+        assertThrows(IllegalArgumentException.class,
+                () -> SpaceSavingSketch.decode(Base64.getEncoder().encodeToString(zeroCapacity.array())));
+    }
+
+    private static SpaceSavingSketch.Counter counter(SpaceSavingSketch sketch, long item) {
+        return sketch.top(sketch.capacity()).stream()
+                .filter(counter -> counter.item() == item)
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("item " + item + " not tracked"));
+    }
+}
@@ -0,0 +1,146 @@
+package com.studysync.recommendation.service;
+
+import com.studysync.recommendation.dto.UserInteractionEvent;
+import com.studysync.recommendation.model.UserInteraction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TrendingServiceTest {
+
+    private static final Duration HALF_LIFE = Duration.ofHours(1);
+    private static final long LANDMARK_PERIOD = HALF_LIFE.toMillis() * 8;
+
+    private RedisTemplate<String, String> redisTemplate;
+    private ZSetOperations<String, String> zSetOperations;
+    private TrendingService trendingService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(RedisTemplate.class);
+        zSetOperations = mock(ZSetOperations.class);
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+
+        trendingService = new TrendingService(redisTemplate);
+        ReflectionTestUtils.setField(trendingService, "likeWeight", 1.0);
+        ReflectionTestUtils.setField(trendingService, "commentWeight", 2.0);
+        ReflectionTestUtils.setField(trendingService, "shareWeight", 3.0);
+        ReflectionTestUtils.setField(trendingService, "viewWeight", 0.1);
+        ReflectionTestUtils.setField(trendingService, "bookmarkWeight", 1.5);
+        ReflectionTestUtils.setField(trendingService, "capacity", 10);
+        ReflectionTestUtils.setField(trendingService, "categoryCapacity", 5);
+        ReflectionTestUtils.setField(trendingService, "maxCategories", 10);
+        ReflectionTestUtils.setField(trendingService, "halfLife", HALF_LIFE);
+        ReflectionTestUtils.setField(trendingService, "nodeTtl", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(trendingService, "readCacheTtl", Duration.ZERO);
+    }
+
+    @Test
+    void ranksLocalActivityWhenRedisIsUnavailable() {
+        when(zSetOperations.rangeByScore(anyString(), anyDouble(), anyDouble()))
+                .thenThrow(new RedisConnectionFailureException("down"));
+
+        trendingService.record(List.of(
+                event(1L, UserInteraction.InteractionType.LIKE, "math"),
+                event(2L, UserInteraction.InteractionType.SHARE, "math"),
+                event(3L, UserInteraction.InteractionType.COMMENT, "physics"),
+                event(3L, UserInteraction.InteractionType.CLICK, "physics")));
+
+        assertEquals(List.of(2L, 3L, 1L), trendingService.getTrending(null, 10));
+        assertEquals(List.of(2L, 1L), trendingService.getTrending("math", 10));
+        assertEquals(List.of(2L), trendingService.getTrending(null, 1));
+    }
+
+    @Test
+    void mergesRemoteSketchesAlignedToTheCurrentLandmark() {
+        long landmark = currentLandmark();
+        SpaceSavingSketch current = new SpaceSavingSketch(10);
+        current.offer(7L, 5.0);
+        SpaceSavingSketch previous = new SpaceSavingSketch(10);
+        // Eight half-lives older: worth 1000 / 256 now
+        previous.offer(8L, 1000.0);
+        remoteNodes(payload(landmark, current), payload(landmark - LANDMARK_PERIOD, previous));
+
+        trendingService.record(List.of(
+                event(1L, UserInteraction.InteractionType.SHARE, null),
+                event(1L, UserInteraction.InteractionType.SHARE, null)));
+
+        assertEquals(List.of(1L, 7L, 8L), trendingService.getTrending(null, 10));
+    }
+
+    @Test
+    void ignoresMalformedRemoteSketches() {
+        SpaceSavingSketch valid = new SpaceSavingSketch(10);
+        valid.offer(9L, 1.0);
+        remoteNodes("garbage", currentLandmark() + "|not base64!", "x|" + valid.encode(),
+                currentLandmark() + "|" + valid.encode());
+
+        trendingService.record(List.of(event(1L, UserInteraction.InteractionType.SHARE, null)));
+
+        assertEquals(List.of(1L, 9L), trendingService.getTrending(null, 10));
+    }
+
+    @Test
+    void removedPostsCanTrendAgain() {
+        when(zSetOperations.rangeByScore(anyString(), anyDouble(), anyDouble())).thenReturn(Set.of());
+
+        trendingService.record(List.of(
+                event(1L, UserInteraction.InteractionType.SHARE, "math"),
+                event(2L, UserInteraction.InteractionType.LIKE, "math")));
+        trendingService.remove(1L, "math");
+
+        assertEquals(List.of(2L), trendingService.getTrending(null, 10));
+        assertEquals(List.of(2L), trendingService.getTrending("math", 10));
+
+        trendingService.record(List.of(
+                event(1L, UserInteraction.InteractionType.COMMENT, "math")));
+
+        assertEquals(List.of(1L, 2L), trendingService.getTrending(null, 10));
+        assertEquals(List.of(1L, 2L), trendingService.getTrending("math", 10));
+    }
+
+    private void remoteNodes(String... payloads) {
+        List<String> nodes = new ArrayList<>();
+        for (int i = 0; i < payloads.length; i++) {
+            nodes.add("node-" + i);
+        }
+        when(zSetOperations.rangeByScore(anyString(), anyDouble(), anyDouble())).thenReturn(Set.copyOf(nodes));
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenReturn(List.of((Object[]) payloads));
+    }
+
+    private static String payload(long landmark, SpaceSavingSketch sketch) {
+        return landmark + "|" + sketch.encode();
+    }
+
+    private static long currentLandmark() {
+        long now = System.currentTimeMillis();
+        return now - Math.floorMod(now, LANDMARK_PERIOD);
+    }
+
+    private static UserInteractionEvent event(Long postId, UserInteraction.InteractionType type, String category) {
+        return UserInteractionEvent.builder()
+                .userId(100L)
+                .postId(postId)
+                .interactionType(type)
+                .metadata(category != null ? Map.of("category", category) : null)
+                .build();
+    }
+}